@@ -0,0 +1,90 @@
+package com.kurswork.ipz.filemanager.bench;
+
+import com.kurswork.ipz.filemanager.CopyEngine;
+import com.kurswork.ipz.filemanager.OperationProgress;
+import com.kurswork.ipz.filemanager.RecursiveDeleter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy and delete throughput of the job engine for several file-size distributions of the same total size.
+ * Each invocation works on a fresh target, so the single-shot time is the cost of one whole operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CopyDeleteBenchmark {
+    private static final long TOTAL_BYTES = 128L * 1024 * 1024;
+
+    @Param({"small", "mixed", "large"})
+    public String distribution;
+
+    private Path workDirectory;
+    private Path source;
+    private Path target;
+    private CopyEngine copyEngine;
+    private RecursiveDeleter deleter;
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        workDirectory = Files.createTempDirectory("ipz-copy");
+        source = workDirectory.resolve("source");
+        SyntheticTree.createSizedFiles(source, sizes(distribution), TOTAL_BYTES);
+        int workers = Math.max(2, Runtime.getRuntime().availableProcessors());
+        copyEngine = new CopyEngine(workers);
+        deleter = new RecursiveDeleter(workers);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareTarget() throws IOException {
+        target = workDirectory.resolve("target");
+        SyntheticTree.delete(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSource() throws IOException {
+        SyntheticTree.delete(workDirectory);
+    }
+
+    @Benchmark
+    public long copy() {
+        OperationProgress progress = new OperationProgress();
+        copyEngine.copy(source, target, progress).join();
+        return progress.getBytesDone();
+    }
+
+    @Benchmark
+    public long copyThenDelete() {
+        OperationProgress progress = new OperationProgress();
+        copyEngine.copy(source, target, progress).join();
+        deleter.delete(target, progress);
+        return progress.getItemsDone();
+    }
+
+    private static long[] sizes(String distribution) {
+        return switch (distribution) {
+            case "small" -> new long[]{4 * 1024};
+            case "large" -> new long[]{64L * 1024 * 1024};
+            default -> new long[]{1024, 16 * 1024, 256 * 1024, 4L * 1024 * 1024, 32L * 1024 * 1024};
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.kurswork.ipz.filemanager.bench;
+
+import com.kurswork.ipz.filemanager.FileInfo;
+import com.kurswork.ipz.filemanager.FileInfoColumns;
+import com.kurswork.ipz.filemanager.ListingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileInfo construction and directory listing through ListingService, which DirectoryListingTask runs without the FX batching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ListingBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+
+    private final ListingService listing = new ListingService(2, 1, 1);
+    private Path root;
+    private List<Path> directories;
+    private List<Path> files;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = Files.createTempDirectory("ipz-listing");
+        directories = SyntheticTree.createEmptyFiles(root, entries);
+        files = new ArrayList<>(entries);
+        for (Path directory : directories) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    files.add(entry);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        SyntheticTree.delete(root);
+    }
+
+    @Benchmark
+    public void fileInfoOfPath(Blackhole blackhole) {
+        for (Path file : files) {
+            blackhole.consume(FileInfo.of(file));
+        }
+    }
+
+    @Benchmark
+    public int listDirectories() throws IOException {
+        int total = 0;
+        for (Path directory : directories) {
+            FileInfoColumns columns = new FileInfoColumns();
+            listing.list(directory, () -> false, columns::add);
+            total += columns.size();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+package com.kurswork.ipz.filemanager.bench;
+
+import com.kurswork.ipz.filemanager.FileIndex;
+import com.kurswork.ipz.filemanager.FileInfo;
+import com.kurswork.ipz.filemanager.FileInfoColumns;
+import com.kurswork.ipz.filemanager.FileQuery;
+import com.kurswork.ipz.filemanager.IoScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name search as searchFiles runs it (index build, then query), plus the in-memory filter over one listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+
+    @Param({"abc", "*.java", "re:^a.*_1\\d*\\.md$"})
+    public String query;
+
+    private final IoScheduler io = new IoScheduler(2);
+    private Path root;
+    private FileIndex index;
+    private FileQuery fileQuery;
+    private FileInfoColumns listing;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = Files.createTempDirectory("ipz-search");
+        SyntheticTree.createEmptyFiles(root, entries);
+        index = new FileIndex(root, io);
+        index.build(() -> false);
+        fileQuery = FileQuery.parse(query);
+        listing = new FileInfoColumns();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root.resolve("dir0").resolve("sub0"))) {
+            for (Path entry : entries) {
+                listing.add(FileInfo.of(entries, entry));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        SyntheticTree.delete(root);
+    }
+
+    @Benchmark
+    public int buildIndex() {
+        FileIndex fresh = new FileIndex(root, io);
+        fresh.build(() -> false);
+        return fresh.isBuilt() ? 1 : 0;
+    }
+
+    @Benchmark
+    public int searchIndex() {
+        int[] count = new int[1];
+        index.search(fileQuery, () -> false, path -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public int filterListing() {
+        int count = 0;
+        for (int i = 0; i < listing.size(); i++) {
+            if (fileQuery.matches(listing.getFilename(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,84 @@
+package com.kurswork.ipz.filemanager.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Builds reproducible directory trees in a temp directory for the benchmarks.
+ */
+final class SyntheticTree {
+    static final int ENTRIES_PER_DIRECTORY = 1000;
+    private static final String[] EXTENSIONS = {"txt", "java", "png", "jpg", "log", "md", "xml", "bin"};
+
+    private SyntheticTree() {
+    }
+
+    /**
+     * Creates about {@code entries} empty files spread over directories of at most
+     * {@link #ENTRIES_PER_DIRECTORY} entries, two levels deep. Returns the directories.
+     */
+    static List<Path> createEmptyFiles(Path root, int entries) throws IOException {
+        Random random = new Random(entries);
+        List<Path> directories = new ArrayList<>();
+        directories.add(root);
+        int created = 0;
+        for (int top = 0; created < entries; top++) {
+            Path topDirectory = Files.createDirectories(root.resolve("dir" + top));
+            directories.add(topDirectory);
+            for (int sub = 0; sub < 10 && created < entries; sub++) {
+                Path directory = Files.createDirectories(topDirectory.resolve("sub" + sub));
+                directories.add(directory);
+                for (int i = 0; i < ENTRIES_PER_DIRECTORY && created < entries; i++, created++) {
+                    Files.createFile(directory.resolve(randomName(random, created)));
+                }
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Creates files with the given sizes, cycling through them until {@code totalBytes} is reached.
+     */
+    static void createSizedFiles(Path root, long[] sizes, long totalBytes) throws IOException {
+        byte[] block = new byte[64 * 1024];
+        new Random(42).nextBytes(block);
+        long written = 0;
+        for (int i = 0; written < totalBytes; i++) {
+            Path directory = Files.createDirectories(root.resolve("dir" + i / ENTRIES_PER_DIRECTORY));
+            long size = sizes[i % sizes.length];
+            try (OutputStream out = Files.newOutputStream(directory.resolve("file" + i + ".bin"))) {
+                for (long remaining = size; remaining > 0; remaining -= block.length) {
+                    out.write(block, 0, (int) Math.min(block.length, remaining));
+                }
+            }
+            written += size;
+        }
+    }
+
+    static void delete(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String randomName(Random random, int index) {
+        StringBuilder name = new StringBuilder();
+        int length = 4 + random.nextInt(16);
+        for (int i = 0; i < length; i++) {
+            name.append((char) ('a' + random.nextInt(26)));
+        }
+        return name.append('_').append(index).append('.').append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]).toString();
+    }
+}
@@ -0,0 +1,21 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class AppData {
+    private static final Path DIRECTORY = Path.of(System.getProperty("user.home"), ".ipz-filemanager");
+
+    private AppData() {
+    }
+
+    public static Path resolve(String name) {
+        try {
+            Files.createDirectories(DIRECTORY);
+        } catch (IOException e) {
+            // Reading or writing the returned file reports the problem to the caller.
+        }
+        return DIRECTORY.resolve(name);
+    }
+}
@@ -0,0 +1,193 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opens ZIP, JAR and TAR archives as read-only file systems, so panels, copies and searches walk them like
+ * directories. ZIP files go through the JDK provider, which reads the central directory once on open;
+ * TAR files go through {@link TarFileSystem}. Open archives are kept until the archive file changes or
+ * more than {@link #MAX_OPEN} are open, but one that a panel or a job still holds is closed only once released.
+ */
+public final class ArchiveFileSystems {
+    private static final int MAX_OPEN = 16;
+    private static final TarFileSystemProvider TAR = new TarFileSystemProvider();
+    private static final Map<Path, Opened> opened = new LinkedHashMap<>(16, 0.75f, true);
+    private static final Map<FileSystem, Path> archives = new ConcurrentHashMap<>();
+    // Guarded by opened: how many holders each archive has, and the replaced or evicted ones waiting for none.
+    private static final Map<FileSystem, Integer> holds = new HashMap<>();
+    private static final Set<FileSystem> retired = new HashSet<>();
+
+    private record Opened(FileSystem fileSystem, FileTime modified, long size) {
+    }
+
+    private ArchiveFileSystems() {
+    }
+
+    public static boolean isArchive(Path file) {
+        String name = getName(file);
+        return name.endsWith(".zip") || name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".ear") || isTar(name);
+    }
+
+    private static boolean isTar(String name) {
+        return name.endsWith(".tar") || name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
+    private static String getName(Path file) {
+        Path name = file.getFileName();
+        return name == null ? "" : name.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the root directory of the archive, opening and indexing it only if it is not open already.
+     */
+    public static Path open(Path archive) throws IOException {
+        Path key = archive.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        synchronized (opened) {
+            Opened existing = opened.get(key);
+            if (existing != null && existing.fileSystem().isOpen() && existing.modified().equals(attributes.lastModifiedTime())
+                    && existing.size() == attributes.size()) {
+                return getRoot(existing.fileSystem());
+            }
+            if (existing != null) {
+                retire(opened.remove(key).fileSystem());
+            }
+        }
+        // Indexing a large TAR takes a while, so it happens outside the lock; a racing open just loses.
+        FileSystem fileSystem = isTar(getName(key))
+                ? TAR.newFileSystem(key, Map.of())
+                : FileSystems.newFileSystem(key, Map.of("accessMode", "readOnly"));
+        synchronized (opened) {
+            Opened existing = opened.get(key);
+            if (existing != null && existing.fileSystem().isOpen()) {
+                fileSystem.close();
+                return getRoot(existing.fileSystem());
+            }
+            opened.put(key, new Opened(fileSystem, attributes.lastModifiedTime(), attributes.size()));
+            archives.put(fileSystem, key);
+            for (Iterator<Opened> iterator = opened.values().iterator(); iterator.hasNext() && opened.size() > MAX_OPEN; ) {
+                FileSystem eldest = iterator.next().fileSystem();
+                if (!holds.containsKey(eldest)) {
+                    iterator.remove();
+                    close(eldest);
+                }
+            }
+        }
+        return getRoot(fileSystem);
+    }
+
+    private static Path getRoot(FileSystem fileSystem) {
+        return fileSystem.getRootDirectories().iterator().next();
+    }
+
+    /**
+     * Keeps the archives the path is inside of open until {@link #release(Path)} is called for the same path.
+     */
+    public static void retain(Path path) {
+        synchronized (opened) {
+            for (FileSystem fileSystem = path.getFileSystem(); archives.containsKey(fileSystem);
+                 fileSystem = archives.get(fileSystem).getFileSystem()) {
+                holds.merge(fileSystem, 1, Integer::sum);
+            }
+        }
+    }
+
+    public static void release(Path path) {
+        synchronized (opened) {
+            FileSystem fileSystem = path.getFileSystem();
+            while (archives.containsKey(fileSystem)) {
+                FileSystem outer = archives.get(fileSystem).getFileSystem();
+                if (holds.merge(fileSystem, -1, Integer::sum) <= 0) {
+                    holds.remove(fileSystem);
+                    if (retired.remove(fileSystem)) {
+                        close(fileSystem);
+                    }
+                }
+                fileSystem = outer;
+            }
+        }
+    }
+
+    private static void retire(FileSystem fileSystem) {
+        if (holds.containsKey(fileSystem)) {
+            retired.add(fileSystem);
+        } else {
+            close(fileSystem);
+        }
+    }
+
+    private static void close(FileSystem fileSystem) {
+        archives.remove(fileSystem);
+        try {
+            fileSystem.close();
+        } catch (IOException e) {
+            // Nothing was written to a read-only archive, so there is nothing to lose.
+        }
+    }
+
+    /**
+     * Returns the archive file the path is inside of, or null for an ordinary path.
+     */
+    public static Path getArchive(Path path) {
+        return path.getFileSystem() == FileSystems.getDefault() ? null : archives.get(path.getFileSystem());
+    }
+
+    public static boolean isInArchive(Path path) {
+        return getArchive(path) != null;
+    }
+
+    /**
+     * Returns the file on disk that holds the path: the outermost archive for a path inside archives.
+     */
+    public static Path getHostPath(Path path) {
+        Path archive;
+        while ((archive = getArchive(path)) != null) {
+            path = archive;
+        }
+        return path;
+    }
+
+    /**
+     * Shows a path inside an archive as if the archive were a directory.
+     */
+    public static String getDisplayName(Path path) {
+        Path archive = getArchive(path);
+        if (archive == null) {
+            return path.toString();
+        }
+        String entry = path.toAbsolutePath().toString();
+        return getDisplayName(archive) + (entry.equals("/") ? "" : entry);
+    }
+
+    /**
+     * Turns a path URI back into a path, opening the archives a "jar:" or "tar:" URI points into.
+     */
+    public static Path fromUri(URI uri) throws IOException {
+        String scheme = uri.getScheme();
+        if (!"jar".equalsIgnoreCase(scheme) && !TarFileSystemProvider.SCHEME.equalsIgnoreCase(scheme)) {
+            return Path.of(uri);
+        }
+        String spec = uri.getRawSchemeSpecificPart();
+        int separator = spec.lastIndexOf("!/");
+        if (separator < 0) {
+            throw new IllegalArgumentException("Not an archive entry URI: " + uri);
+        }
+        Path archive = fromUri(URI.create(spec.substring(0, separator)));
+        return open(archive).resolve(URI.create(spec.substring(separator + 1)).getPath());
+    }
+}
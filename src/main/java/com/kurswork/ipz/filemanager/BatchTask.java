@@ -0,0 +1,59 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public abstract class BatchTask<T> extends Task<Integer> {
+    private static final int FIRST_BATCH_SIZE = 64;
+    private static final int MAX_BATCH_SIZE = 4096;
+    private static final long MAX_BATCH_DELAY_NANOS = 100_000_000L;
+
+    private final Consumer<List<T>> batchConsumer;
+    private int count;
+    private int batchLimit = FIRST_BATCH_SIZE;
+    private List<T> batch = new ArrayList<>(batchLimit);
+    private long batchStart = System.nanoTime();
+
+    protected BatchTask(Consumer<List<T>> batchConsumer) {
+        this.batchConsumer = batchConsumer;
+    }
+
+    protected abstract void produce() throws Exception;
+
+    protected abstract String getProgressMessage(int count);
+
+    @Override
+    protected Integer call() throws Exception {
+        produce();
+        flush();
+        return count;
+    }
+
+    protected void emit(T item) {
+        batch.add(item);
+        count++;
+        if (batch.size() >= batchLimit || System.nanoTime() - batchStart >= MAX_BATCH_DELAY_NANOS) {
+            flush();
+            batchLimit = Math.min(batchLimit * 2, MAX_BATCH_SIZE);
+        }
+    }
+
+    private void flush() {
+        updateMessage(getProgressMessage(count));
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<T> published = batch;
+        Platform.runLater(() -> {
+            if (!isCancelled()) {
+                batchConsumer.accept(published);
+            }
+        });
+        batch = new ArrayList<>(batchLimit);
+        batchStart = System.nanoTime();
+    }
+}
@@ -0,0 +1,48 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+
+public enum ConflictPolicy {
+    OVERWRITE("Замінювати"), SKIP("Пропускати"), RENAME("Перейменовувати");
+
+    private final String title;
+
+    ConflictPolicy(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Path resolve(Path target) {
+        if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            return target;
+        }
+        return switch (this) {
+            case OVERWRITE -> target;
+            case SKIP -> null;
+            case RENAME -> rename(target);
+        };
+    }
+
+    private static Path rename(Path target) {
+        String filename = target.getFileName().toString();
+        int dot = filename.lastIndexOf('.');
+        String base = dot > 0 ? filename.substring(0, dot) : filename;
+        String extension = dot > 0 ? filename.substring(dot) : "";
+        for (int i = 1; ; i++) {
+            Path candidate = target.resolveSibling(base + " (" + i + ")" + extension);
+            if (!Files.exists(candidate, LinkOption.NOFOLLOW_LINKS)) {
+                return candidate;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
@@ -0,0 +1,6 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Path;
+
+public record ContentHit(Path file, long line, long offset, String text) {
+}
@@ -0,0 +1,85 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ContentMatcher {
+    private static final String REGEX_PREFIX = "re:";
+
+    private final byte[] literal;
+    private final int[] shifts;
+    private final Pattern pattern;
+
+    private ContentMatcher(byte[] literal, Pattern pattern) {
+        this.literal = literal;
+        this.pattern = pattern;
+        this.shifts = literal != null ? buildShifts(literal) : null;
+    }
+
+    public static ContentMatcher parse(String query) {
+        if (query.startsWith(REGEX_PREFIX)) {
+            return new ContentMatcher(null, Pattern.compile(query.substring(REGEX_PREFIX.length())));
+        }
+        return new ContentMatcher(query.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * Returns the buffer index of the first match inside [from, to), or -1. Literals are matched on the raw
+     * bytes with Boyer-Moore-Horspool; regular expressions are run line by line on decoded text.
+     */
+    public int find(ByteBuffer buffer, int from, int to) {
+        return literal != null ? findLiteral(buffer, from, to) : findPattern(buffer, from, to);
+    }
+
+    /**
+     * Number of bytes before a buffer's end that could still begin a match completed by the bytes after it.
+     */
+    public int getOverlap() {
+        return literal != null ? literal.length - 1 : 0;
+    }
+
+    private int findLiteral(ByteBuffer buffer, int from, int to) {
+        int last = literal.length - 1;
+        for (int i = from; i + last < to; i += shifts[buffer.get(i + last) & 0xff]) {
+            int j = last;
+            while (j >= 0 && buffer.get(i + j) == literal[j]) {
+                j--;
+            }
+            if (j < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int findPattern(ByteBuffer buffer, int from, int to) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            byte[] bytes = new byte[lineEnd - lineStart];
+            buffer.get(lineStart, bytes);
+            String line = new String(bytes, StandardCharsets.UTF_8);
+            Matcher matcher = pattern.matcher(line);
+            if (matcher.find()) {
+                return lineStart + line.substring(0, matcher.start()).getBytes(StandardCharsets.UTF_8).length;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return -1;
+    }
+
+    private static int[] buildShifts(byte[] literal) {
+        int[] shifts = new int[256];
+        Arrays.fill(shifts, literal.length);
+        for (int i = 0; i < literal.length - 1; i++) {
+            shifts[literal[i] & 0xff] = literal.length - 1 - i;
+        }
+        return shifts;
+    }
+}
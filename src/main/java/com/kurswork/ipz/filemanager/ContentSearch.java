@@ -0,0 +1,173 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+public class ContentSearch {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int SNIFF_SIZE = 8192;
+    private static final int MAX_HITS_PER_FILE = 100;
+    private static final int MAX_PREVIEW_BEFORE = 80;
+    private static final int MAX_PREVIEW_AFTER = 160;
+
+    private final int workers;
+    private final ExecutorService workerPool;
+    // One direct buffer per worker thread keeps memory fixed no matter how many files are queued.
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    public ContentSearch(int workers) {
+        this.workers = workers;
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "content-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void search(Path root, ContentMatcher matcher, BooleanSupplier cancelled, Consumer<ContentHit> hits) throws IOException {
+        int maxInFlight = workers * 4;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (cancelled.getAsBoolean()) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (!attrs.isRegularFile() || attrs.size() == 0) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    inFlight.acquireUninterruptibly();
+                    workerPool.execute(() -> {
+                        try {
+                            scanFile(file, matcher, cancelled, hits);
+                        } catch (IOException e) {
+                            // Unreadable files simply produce no hits.
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+    }
+
+    private void scanFile(Path file, ContentMatcher matcher, BooleanSupplier cancelled, Consumer<ContentHit> hits) throws IOException {
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bufferOffset = 0;
+            long line = 1;
+            int fileHits = 0;
+            boolean sniffed = false;
+            boolean eof = false;
+            while (!eof && !cancelled.getAsBoolean()) {
+                eof = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                if (!sniffed && (eof || limit >= SNIFF_SIZE)) {
+                    if (isBinary(buffer, Math.min(limit, SNIFF_SIZE))) {
+                        return;
+                    }
+                    sniffed = true;
+                }
+                // Only whole lines are searched; the tail is carried over unless a single line fills the buffer.
+                int end = eof ? limit : lastLineBreak(buffer, limit) + 1;
+                boolean split = false;
+                if (end == 0 || !sniffed) {
+                    if (buffer.hasRemaining()) {
+                        continue;
+                    }
+                    end = limit;
+                    split = true;
+                }
+                int lineStart = 0;
+                int position = 0;
+                int match;
+                while (fileHits < MAX_HITS_PER_FILE && (match = matcher.find(buffer, position, end)) >= 0) {
+                    for (int i = position; i < match; i++) {
+                        if (buffer.get(i) == '\n') {
+                            line++;
+                            lineStart = i + 1;
+                        }
+                    }
+                    int lineEnd = match;
+                    while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                        lineEnd++;
+                    }
+                    hits.accept(new ContentHit(file, line, bufferOffset + match, preview(buffer, lineStart, match, lineEnd)));
+                    fileHits++;
+                    // One hit per line: continue with the next line.
+                    position = lineEnd;
+                    if (lineEnd < end) {
+                        line++;
+                        lineStart = lineEnd + 1;
+                        position = lineStart;
+                    }
+                }
+                if (fileHits >= MAX_HITS_PER_FILE) {
+                    return;
+                }
+                for (int i = position; i < end; i++) {
+                    if (buffer.get(i) == '\n') {
+                        line++;
+                    }
+                }
+                // A line split by a full buffer keeps its last bytes, so a literal spanning the split is still found.
+                int carried = split ? Math.min(matcher.getOverlap(), end - position) : 0;
+                buffer.limit(limit).position(end - carried);
+                buffer.compact();
+                bufferOffset += end - carried;
+            }
+        }
+    }
+
+    private static boolean isBinary(ByteBuffer buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int lastLineBreak(ByteBuffer buffer, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String preview(ByteBuffer buffer, int lineStart, int match, int lineEnd) {
+        int from = Math.max(lineStart, match - MAX_PREVIEW_BEFORE);
+        int to = Math.min(lineEnd, match + MAX_PREVIEW_AFTER);
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8).strip();
+    }
+}
@@ -0,0 +1,43 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class ContentSearchTask extends BatchTask<ContentHit> {
+    public static final int MAX_HITS = 10_000;
+
+    private final SearchService search;
+    private final Path root;
+    private final ContentMatcher matcher;
+    private int hits;
+
+    public ContentSearchTask(SearchService search, Path root, ContentMatcher matcher, Consumer<List<ContentHit>> batchConsumer) {
+        super(batchConsumer);
+        this.search = search;
+        this.root = root;
+        this.matcher = matcher;
+    }
+
+    public synchronized boolean isLimitReached() {
+        return hits >= MAX_HITS;
+    }
+
+    @Override
+    protected void produce() throws Exception {
+        search.searchContent(root, matcher, () -> isCancelled() || isLimitReached(), this::accept);
+    }
+
+    @Override
+    protected String getProgressMessage(int count) {
+        return "Знайдено: " + count;
+    }
+
+    private synchronized void accept(ContentHit hit) {
+        // Workers report concurrently, but batching is single-threaded.
+        if (hits < MAX_HITS) {
+            hits++;
+            emit(hit);
+        }
+    }
+}
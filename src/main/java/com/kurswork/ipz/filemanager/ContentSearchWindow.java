@@ -0,0 +1,71 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+public class ContentSearchWindow {
+    private final Stage stage = new Stage();
+    private final ObservableList<ContentHit> hits = FXCollections.observableArrayList();
+    private final ContentSearchTask task;
+    private final Label statusLabel = new Label();
+
+    public ContentSearchWindow(SearchService search, Path root, ContentMatcher matcher, String query) {
+        this.task = new ContentSearchTask(search, root, matcher, hits::addAll);
+
+        TableView<ContentHit> table = new TableView<>(hits);
+        table.getColumns().add(createColumn("Файл", 300, hit -> root.relativize(hit.file()).toString()));
+        table.getColumns().add(createColumn("Рядок", 70, ContentHit::line));
+        table.getColumns().add(createColumn("Зсув", 90, ContentHit::offset));
+        table.getColumns().add(createColumn("Текст", 400, ContentHit::text));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Button cancelButton = new Button("Скасувати");
+        cancelButton.setOnAction(event -> task.cancel());
+        cancelButton.disableProperty().bind(task.runningProperty().not());
+        statusLabel.textProperty().bind(task.messageProperty());
+        task.setOnSucceeded(event -> finish(task.isLimitReached() ? " (показано перші " + ContentSearchTask.MAX_HITS + ")" : ""));
+        task.setOnCancelled(event -> finish(" (скасовано)"));
+        task.setOnFailed(event -> finish(" (помилка)"));
+
+        HBox controls = new HBox(10, cancelButton, statusLabel);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setPadding(new Insets(5));
+
+        stage.setTitle("Пошук \"" + query + "\" у " + root);
+        stage.setScene(new Scene(new VBox(controls, table), 900, 500));
+        stage.setOnHidden(event -> task.cancel());
+    }
+
+    public void show(Executor executor) {
+        stage.show();
+        executor.execute(task);
+    }
+
+    private void finish(String suffix) {
+        statusLabel.textProperty().unbind();
+        statusLabel.setText("Знайдено: " + hits.size() + suffix);
+    }
+
+    private static <T> TableColumn<ContentHit, T> createColumn(String title, double width, Function<ContentHit, T> value) {
+        TableColumn<ContentHit, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(value.apply(param.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+}
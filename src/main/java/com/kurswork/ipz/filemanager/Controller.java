@@ -1,59 +1,172 @@
 package com.kurswork.ipz.filemanager;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.ComboBox;
 import javafx.scene.layout.VBox;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.BiPredicate;
 
 public class Controller {
+    private static final int JOBS_PER_DEVICE = 4;
+    private static final int MAX_JOBS = 8;
+    private static final int MAX_LISTED_JOBS = 10;
+    static final long FX_STALL_THRESHOLD_MILLIS = 100;
+
     @FXML
     private VBox leftPanel, rightPanel;
 
+    @FXML
+    private ComboBox<ConflictPolicy> conflictPolicyBox;
+
+    @FXML
+    private CheckBox trashModeBox;
+
+    private OperationService operations;
+
+    @FXML
+    public void initialize() {
+        new FxStallDetector(FX_STALL_THRESHOLD_MILLIS).start();
+        int workers = Math.max(2, Runtime.getRuntime().availableProcessors());
+        operations = new OperationService(workers, AppData.resolve("jobs.journal"), JOBS_PER_DEVICE, MAX_JOBS);
+        getPanel(leftPanel).setOperationService(operations);
+        getPanel(rightPanel).setOperationService(operations);
+
+        conflictPolicyBox.getItems().setAll(ConflictPolicy.values());
+        conflictPolicyBox.getSelectionModel().select(operations.getConflictPolicy());
+        conflictPolicyBox.setOnAction(event -> operations.setConflictPolicy(conflictPolicyBox.getValue()));
+        trashModeBox.setSelected(operations.isTrashMode());
+        trashModeBox.selectedProperty().addListener((observable, oldValue, newValue) -> operations.setTrashMode(newValue));
+
+        try {
+            List<FileJob> pending = operations.loadPending();
+            if (!pending.isEmpty()) {
+                // Asked once the window is up, so the prompt does not hold back the panels.
+                Platform.runLater(() -> offerPending(pending));
+            }
+        } catch (IOException e) {
+            showAlert(Alert.AlertType.WARNING, "Помилка", "Не вдалося відновити незавершені операції.");
+        }
+    }
+
+    /**
+     * Resumes unfinished copies and the like at once, but asks first when a job would remove or replace files,
+     * since the user may have abandoned it on purpose.
+     */
+    private void offerPending(List<FileJob> pending) {
+        if (pending.stream().anyMatch(job -> job.kind().isDestructive())) {
+            ButtonType resume = new ButtonType("Відновити", ButtonBar.ButtonData.YES);
+            ButtonType discard = new ButtonType("Відкинути", ButtonBar.ButtonData.NO);
+            ButtonType later = new ButtonType("Пізніше", ButtonBar.ButtonData.CANCEL_CLOSE);
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, describe(pending), resume, discard, later);
+            alert.setTitle("Незавершені операції");
+            alert.setHeaderText("Попередній запуск не завершив " + pending.size() + " операцій. Відновити їх?");
+            ButtonType choice = alert.showAndWait().orElse(later);
+            if (choice == discard) {
+                try {
+                    operations.discardPending();
+                } catch (IOException e) {
+                    showAlert(Alert.AlertType.WARNING, "Помилка", "Не вдалося відкинути незавершені операції.");
+                }
+                return;
+            }
+            if (choice != resume) {
+                return;
+            }
+        }
+        JobBatch resumed = operations.resumePending();
+        if (resumed != null) {
+            getPanel(leftPanel).trackBatch("Відновлення операцій", resumed, getPanel(rightPanel));
+        }
+    }
+
+    private static String describe(List<FileJob> jobs) {
+        StringBuilder text = new StringBuilder();
+        for (FileJob job : jobs.subList(0, Math.min(jobs.size(), MAX_LISTED_JOBS))) {
+            text.append(job.kind().getTitle()).append(": ")
+                    .append(ArchiveFileSystems.getDisplayName(job.source() != null ? job.source() : job.target()));
+            if (job.source() != null && job.target() != null) {
+                text.append(" → ").append(ArchiveFileSystems.getDisplayName(job.target()));
+            }
+            text.append('\n');
+        }
+        if (jobs.size() > MAX_LISTED_JOBS) {
+            text.append("… та ще ").append(jobs.size() - MAX_LISTED_JOBS);
+        }
+        return text.toString().strip();
+    }
 
     @FXML
     public void copyBtnAction(ActionEvent actionEvent) {
-        handleFileAction(this::copyFile);
+        handleFileAction("Копіювання", (sources, dstDir) -> operations.copy(sources, dstDir));
+    }
+
+    @FXML
+    public void syncBtnAction(ActionEvent actionEvent) {
+        handleFileAction("Синхронізація", (sources, dstDir) -> operations.sync(sources, dstDir));
+    }
+
+    @FXML
+    public void packBtnAction(ActionEvent actionEvent) {
+        ChoiceDialog<PackEngine.Format> dialog = new ChoiceDialog<>(PackEngine.Format.ZIP, PackEngine.Format.values());
+        dialog.setTitle("Пакування");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Формат архіву:");
+        dialog.showAndWait().ifPresent(format ->
+                handleFileAction("Пакування", (sources, dstDir) -> operations.pack(sources, dstDir, format)));
     }
 
     @FXML
     public void deleteBtnAction(ActionEvent actionEvent) {
-        handleFileAction(this::deleteFile);
+        handleFileAction("Видалення", (sources, dstDir) -> operations.delete(sources), PanelController::confirmDelete);
     }
 
-    private void handleFileAction(FileAction action) {
-        PanelController leftPC = (PanelController) leftPanel.getProperties().get("ctrl");
-        PanelController rightPC = (PanelController) rightPanel.getProperties().get("ctrl");
+    @FXML
+    public void statsBtnAction(ActionEvent actionEvent) {
+        new StatsWindow().show();
+    }
 
-        if (leftPC.getSelectedFilename() == null && rightPC.getSelectedFilename() == null) {
+    private void handleFileAction(String title, FileAction action) {
+        handleFileAction(title, action, (srcPC, sources) -> true);
+    }
+
+    private void handleFileAction(String title, FileAction action, BiPredicate<PanelController, List<Path>> confirmation) {
+        PanelController leftPC = getPanel(leftPanel);
+        PanelController rightPC = getPanel(rightPanel);
+
+        List<String> leftSelection = leftPC.getSelectedFilenames();
+        List<String> rightSelection = rightPC.getSelectedFilenames();
+
+        if (leftSelection.isEmpty() && rightSelection.isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Помилка", "Файл не вибрано.");
             return;
         }
 
-        PanelController srcPC = leftPC.getSelectedFilename() != null ? leftPC : rightPC;
-        PanelController dstPC = leftPC.getSelectedFilename() != null ? rightPC : leftPC;
+        PanelController srcPC = !leftSelection.isEmpty() ? leftPC : rightPC;
+        PanelController dstPC = !leftSelection.isEmpty() ? rightPC : leftPC;
+        List<String> selection = !leftSelection.isEmpty() ? leftSelection : rightSelection;
 
-        Path srcFile = srcPC.getCurrentPath().resolve(srcPC.getSelectedFilename());
         Path dstDir = dstPC.getCurrentPath();
-
-        try {
-            action.execute(srcFile, dstDir);
-            dstPC.updateList();
-        } catch (IOException e) {
-            showAlert(Alert.AlertType.ERROR, "Помилка", "Помилка операції з файлом.");
+        List<Path> sources = selection.stream().map(srcPC.getCurrentPath()::resolve).toList();
+        if (!confirmation.test(srcPC, sources)) {
+            return;
         }
-    }
 
-    private void copyFile(Path srcFile, Path dstDir) throws IOException {
-        Files.copy(srcFile, dstDir.resolve(srcFile.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        srcPC.runOperation(sources.size() > 1 ? title + " (" + sources.size() + ")" : title,
+                () -> action.run(sources, dstDir), dstPC);
     }
 
-    private void deleteFile(Path srcFile, Path dstDir) throws IOException {
-        Files.delete(srcFile);
+    private PanelController getPanel(VBox panel) {
+        return (PanelController) panel.getProperties().get("ctrl");
     }
 
     private void showAlert(Alert.AlertType alertType, String title, String message) {
@@ -66,6 +179,6 @@ public class Controller {
 
     @FunctionalInterface
     private interface FileAction {
-        void execute(Path srcFile, Path dstDir) throws IOException;
+        JobBatch run(List<Path> sources, Path dstDir) throws IOException;
     }
 }
@@ -0,0 +1,194 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadFactory;
+
+public class CopyEngine {
+    private static final long DIRECT_COPY_LIMIT = 1024 * 1024L;
+    private static final long CHUNK_SIZE = 8 * 1024 * 1024L;
+    private static final int MAX_TEMP_ATTEMPTS = 16;
+
+    private final int workers;
+    private final ExecutorService workerPool;
+    private final ExecutorService coordinatorPool;
+
+    public CopyEngine(int workers) {
+        this.workers = workers;
+        this.workerPool = Executors.newFixedThreadPool(workers, daemonThreads("copy-worker"));
+        this.coordinatorPool = Executors.newCachedThreadPool(daemonThreads("copy-coordinator"));
+    }
+
+    public CompletableFuture<Void> copy(Path source, Path target, OperationProgress progress) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                copyTree(source, target, progress);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, coordinatorPool);
+    }
+
+    private void copyTree(Path source, Path target, OperationProgress progress) throws IOException {
+        if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS) && target.toAbsolutePath().normalize().startsWith(source.toAbsolutePath().normalize())) {
+            throw new IOException("Неможливо скопіювати папку в саму себе: " + source);
+        }
+        int maxInFlight = workers * 4;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    progress.checkpoint();
+                    Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    progress.checkpoint();
+                    Path targetFile = source.equals(file) ? target : target.resolve(source.relativize(file).toString());
+                    progress.addTotal(1, attrs.size());
+                    inFlight.acquireUninterruptibly();
+                    workerPool.execute(() -> {
+                        try {
+                            copyFile(file, targetFile, attrs, progress);
+                        } catch (CancellationException e) {
+                            // The whole operation is being cancelled; nothing to record per file.
+                        } catch (IOException e) {
+                            progress.addFailure(file, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    progress.addFailure(file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            progress.setTotalKnown();
+        } finally {
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+        progress.checkpoint();
+    }
+
+    private void copyFile(Path source, Path target, BasicFileAttributes attrs, OperationProgress progress) throws IOException {
+        progress.checkpoint();
+        if (attrs.isSymbolicLink() && source.getFileSystem() != target.getFileSystem()) {
+            // Copying between providers refuses links, so links stored in archives are recreated here.
+            Files.deleteIfExists(target);
+            Files.createSymbolicLink(target, target.getFileSystem().getPath(Files.readSymbolicLink(source).toString()));
+            progress.addDone(1, 0);
+            return;
+        }
+        if (isSameFile(source, target)) {
+            // A file copied onto itself is left alone, as Files.copy does; the chunked copy would truncate it first.
+            progress.addDone(1, attrs.size());
+            return;
+        }
+        if (!attrs.isRegularFile() || attrs.size() <= DIRECT_COPY_LIMIT) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            progress.addDone(1, attrs.size());
+            return;
+        }
+        // Written next to the target and moved over it when complete, so a failed copy never truncates the target.
+        Path temp = createTemporaryFile(target);
+        try {
+            copyChunks(source, temp, progress);
+            Files.setLastModifiedTime(temp, attrs.lastModifiedTime());
+            copyPermissions(source, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        progress.addDone(1, 0);
+    }
+
+    private static void copyChunks(Path source, Path target, OperationProgress progress) throws IOException {
+        try (SeekableByteChannel in = Files.newByteChannel(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                progress.checkpoint();
+                long chunk = Math.min(CHUNK_SIZE, size - position);
+                // Archive entries are decompressed streams; only local files can be handed to the kernel.
+                long transferred = in instanceof FileChannel file ? file.transferTo(position, chunk, out) : out.transferFrom(in, position, chunk);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                progress.addDone(0, transferred);
+            }
+        }
+    }
+
+    private static boolean isSameFile(Path source, Path target) {
+        try {
+            return source.getFileSystem() == target.getFileSystem() && Files.isSameFile(source, target);
+        } catch (IOException e) {
+            // Usually the target does not exist yet, so it cannot be the source.
+            return false;
+        }
+    }
+
+    /**
+     * Creates an empty file under a fresh hidden name next to the target. Names already taken are skipped.
+     */
+    private static Path createTemporaryFile(Path target) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Path temp = target.resolveSibling("." + target.getFileName() + "."
+                    + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".part");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                if (attempt >= MAX_TEMP_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) {
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (IOException | UnsupportedOperationException e) {
+            // Files from archives or non-POSIX stores keep the default permissions, as a new file would.
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class DirectoryListingTask extends FileBatchTask {
+    private final ListingService listing;
+    private final Path directory;
+
+    public DirectoryListingTask(ListingService listing, Path directory, Consumer<List<FileInfo>> batchConsumer) {
+        super(batchConsumer);
+        this.listing = listing;
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    protected void produce() throws IOException {
+        listing.list(directory, this::isCancelled, this::emit);
+    }
+
+    @Override
+    protected String getProgressMessage(int count) {
+        return "Завантаження... " + count;
+    }
+}
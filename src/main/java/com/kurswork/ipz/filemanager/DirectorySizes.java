@@ -0,0 +1,208 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class DirectorySizes {
+    private static final String UNIX_ATTRIBUTES = "unix:size,nlink,fileKey,isDirectory,dev";
+
+    private final IoScheduler io;
+    private final Map<Path, Node> nodes = new ConcurrentHashMap<>();
+    // A file with several hard links is counted only in the directory that reached it first.
+    private final Map<Object, Path> hardLinkOwners = new ConcurrentHashMap<>();
+    // The reverse, so rescanning or dropping a directory gives up its claims without a full scan.
+    private final Map<Path, Set<Object>> ownedHardLinks = new ConcurrentHashMap<>();
+    private final List<Consumer<Path>> listeners = new CopyOnWriteArrayList<>();
+
+    public DirectorySizes(IoScheduler io) {
+        this.io = io;
+    }
+
+    public void addListener(Consumer<Path> listener) {
+        listeners.add(listener);
+    }
+
+    public long get(Path directory) {
+        Node node = nodes.get(normalize(directory));
+        return node != null ? node.total() : FileInfo.DIRECTORY_SIZE;
+    }
+
+    /**
+     * Sets a last-known total, such as one saved by an earlier session, for a directory not scanned yet.
+     */
+    public void seed(Path directory, long total) {
+        nodes.putIfAbsent(normalize(directory), new Node(total, total, List.of()));
+    }
+
+    public void compute(Path directory) {
+        Path dir = normalize(directory);
+        scan(dir, io.laneFor(dir), null, false).thenRun(() -> propagate(dir.getParent()));
+    }
+
+    /**
+     * Rescans one directory whose entries changed, reusing the cached totals of its unchanged
+     * subdirectories, and adjusts every cached ancestor.
+     */
+    public void refresh(Path directory) {
+        Path dir = normalize(directory);
+        if (!nodes.containsKey(dir)) {
+            return;
+        }
+        scan(dir, io.laneFor(dir), null, true).thenRun(() -> propagate(dir.getParent()));
+    }
+
+    /**
+     * Reads one directory on its file store's lane, then scans the subdirectories the same way. Parents
+     * wait by composition rather than by blocking a thread, so deep trees hold no threads while they wait.
+     */
+    private CompletableFuture<Long> scan(Path directory, IoScheduler.Lane lane, Object device, boolean reuseChildren) {
+        return io.submit(lane, () -> read(directory, device)).thenCompose(listing -> {
+            List<CompletableFuture<Long>> subtotals = new ArrayList<>();
+            for (Child child : listing.children()) {
+                Node cached = reuseChildren ? nodes.get(child.path()) : null;
+                if (cached != null) {
+                    subtotals.add(CompletableFuture.completedFuture(cached.total()));
+                } else {
+                    // A subdirectory on another device is a mount point and gets that store's lane.
+                    boolean sameDevice = child.device() != null && child.device().equals(listing.device());
+                    IoScheduler.Lane childLane = sameDevice ? lane : io.laneFor(child.path());
+                    subtotals.add(scan(child.path(), childLane, child.device(), false));
+                }
+            }
+            return CompletableFuture.allOf(subtotals.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                long total = listing.direct();
+                for (CompletableFuture<Long> subtotal : subtotals) {
+                    total += subtotal.join();
+                }
+                List<Path> children = listing.children().stream().map(Child::path).toList();
+                Node previous = nodes.put(directory, new Node(listing.direct(), total, children));
+                if (previous != null) {
+                    Set<Path> kept = new HashSet<>(children);
+                    previous.children().stream().filter(child -> !kept.contains(child)).forEach(this::forget);
+                }
+                notifyListeners(directory);
+                return total;
+            });
+        });
+    }
+
+    private Listing read(Path directory, Object device) {
+        releaseHardLinks(directory);
+        boolean unix = directory.getFileSystem().supportedFileAttributeViews().contains("unix");
+        if (unix && device == null) {
+            try {
+                device = Files.getAttribute(directory, "unix:dev", LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                // Without the device every subdirectory looks up its own lane.
+            }
+        }
+        long direct = 0;
+        List<Child> children = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                try {
+                    direct += readEntry(directory, entry, unix, children);
+                } catch (IOException e) {
+                    // An entry that vanished or cannot be read contributes nothing.
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // An unreadable directory contributes nothing; the rest of the tree is still counted.
+        }
+        return new Listing(device, direct, children);
+    }
+
+    private long readEntry(Path directory, Path entry, boolean unix, List<Child> children) throws IOException {
+        // Links are never followed, so symlink loops cannot be entered.
+        if (unix) {
+            Map<String, Object> attributes = Files.readAttributes(entry, UNIX_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            if ((Boolean) attributes.get("isDirectory")) {
+                children.add(new Child(entry, attributes.get("dev")));
+                return 0;
+            }
+            boolean counted = (Integer) attributes.get("nlink") <= 1 || ownsHardLink(directory, attributes.get("fileKey"));
+            return counted ? (Long) attributes.get("size") : 0;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (attributes.isDirectory()) {
+            children.add(new Child(entry, null));
+            return 0;
+        }
+        return attributes.size();
+    }
+
+    private boolean ownsHardLink(Path directory, Object fileKey) {
+        Path owner = hardLinkOwners.putIfAbsent(fileKey, directory);
+        if (owner == null) {
+            ownedHardLinks.computeIfAbsent(directory, key -> ConcurrentHashMap.newKeySet()).add(fileKey);
+        }
+        return owner == null || owner.equals(directory);
+    }
+
+    private void releaseHardLinks(Path directory) {
+        Set<Object> owned = ownedHardLinks.remove(directory);
+        if (owned != null) {
+            owned.forEach(fileKey -> hardLinkOwners.remove(fileKey, directory));
+        }
+    }
+
+    /**
+     * Drops a directory that no longer exists, with everything cached below it.
+     */
+    private void forget(Path directory) {
+        releaseHardLinks(directory);
+        Node node = nodes.remove(directory);
+        if (node != null) {
+            node.children().forEach(this::forget);
+        }
+    }
+
+    private synchronized void propagate(Path directory) {
+        for (Path dir = directory; dir != null; dir = dir.getParent()) {
+            Node node = nodes.get(dir);
+            if (node == null) {
+                return;
+            }
+            long total = node.direct();
+            for (Path child : node.children()) {
+                Node childNode = nodes.get(child);
+                total += childNode != null ? childNode.total() : 0;
+            }
+            nodes.put(dir, new Node(node.direct(), total, node.children()));
+            notifyListeners(dir);
+        }
+    }
+
+    private void notifyListeners(Path directory) {
+        for (Consumer<Path> listener : listeners) {
+            listener.accept(directory);
+        }
+    }
+
+    private static Path normalize(Path directory) {
+        return directory.toAbsolutePath().normalize();
+    }
+
+    private record Node(long direct, long total, List<Path> children) {
+    }
+
+    private record Child(Path path, Object device) {
+    }
+
+    private record Listing(Object device, long direct, List<Child> children) {
+    }
+}
@@ -0,0 +1,299 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Finds files with identical contents in three passes, each narrowing the candidates for the next: files
+ * are grouped by size, then by a hash of their first and last blocks, and only what still collides is read
+ * in full. Hashes are reused from the {@link HashCache} while a file's size and modification time hold.
+ */
+public class DuplicateFinder {
+    static final int EDGE_SIZE = 4096;
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    private static final String ALGORITHM = "SHA-256";
+    // Per search; the lanes themselves limit how many of these run against one device.
+    private static final int IO_IN_FLIGHT = 256;
+
+    public enum Stage {
+        SCAN("Перегляд файлів"),
+        PARTIAL("Хешування початку й кінця"),
+        FULL("Повне хешування");
+
+        private final String title;
+
+        Stage(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Reports files done in the first two stages and bytes hashed in the last; a negative total is not known yet.
+         */
+        void update(Stage stage, long done, long total);
+    }
+
+    private record Candidate(Path path, long size, long modified, Object fileKey) {
+    }
+
+    private final IoScheduler io;
+    private final HashCache cache;
+    private final int workers;
+    private final ExecutorService workerPool;
+
+    public DuplicateFinder(IoScheduler io, HashCache cache, int workers) {
+        this.io = io;
+        this.cache = cache;
+        this.workers = workers;
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "duplicate-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns groups of identical files under the root, the most wasted space first. Unreadable files are left
+     * out, and a cancelled search returns what it had confirmed so far.
+     */
+    public List<DuplicateGroup> find(Path root, BooleanSupplier cancelled, Listener listener) throws IOException {
+        cache.load();
+        List<List<Candidate>> bySize = scan(root, cancelled, listener);
+        Set<String> hashed = new HashSet<>();
+        bySize.forEach(group -> group.forEach(candidate -> hashed.add(candidate.path().toString())));
+        try {
+            // Reading the edges is latency-bound, so it goes through the per-device lanes; full hashes need bandwidth and CPU.
+            List<List<Candidate>> byEdges = refine(bySize, Stage.PARTIAL, candidate -> 1, IO_IN_FLIGHT,
+                    candidate -> io.submit(io.laneFor(candidate.path().getParent()), () -> partialHash(candidate)),
+                    cancelled, listener);
+            List<DuplicateGroup> duplicates = new ArrayList<>();
+            List<List<Candidate>> unconfirmed = new ArrayList<>();
+            for (List<Candidate> group : byEdges) {
+                // Both edges together cover a small file, so its partial hash already is the full one.
+                if (group.get(0).size() <= 2L * EDGE_SIZE) {
+                    duplicates.add(toGroup(group));
+                } else {
+                    unconfirmed.add(group);
+                }
+            }
+            List<List<Candidate>> byContents = refine(unconfirmed, Stage.FULL, Candidate::size, workers * 2,
+                    candidate -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return fullHash(candidate, cancelled);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, workerPool), cancelled, listener);
+            byContents.forEach(group -> duplicates.add(toGroup(group)));
+            duplicates.sort(Comparator.comparingLong(DuplicateGroup::getWasted).reversed());
+            return duplicates;
+        } finally {
+            if (!cancelled.getAsBoolean()) {
+                cache.retain(root, hashed);
+            }
+            try {
+                cache.save();
+            } catch (IOException e) {
+                // The cache only saves time; the results are complete without it.
+            }
+        }
+    }
+
+    /**
+     * Groups regular files by size and keeps the sizes shared by at least two distinct files.
+     */
+    private static List<List<Candidate>> scan(Path root, BooleanSupplier cancelled, Listener listener) throws IOException {
+        Map<Long, List<Candidate>> bySize = new HashMap<>();
+        long[] count = new long[1];
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (cancelled.getAsBoolean()) {
+                    return FileVisitResult.TERMINATE;
+                }
+                // Empty files are all alike and free nothing when removed.
+                if (attrs.isRegularFile() && attrs.size() > 0) {
+                    bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>(2))
+                            .add(new Candidate(file, attrs.size(), attrs.lastModifiedTime().toMillis(), attrs.fileKey()));
+                }
+                if (++count[0] % 1000 == 0) {
+                    listener.update(Stage.SCAN, count[0], -1);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        listener.update(Stage.SCAN, count[0], count[0]);
+        List<List<Candidate>> groups = new ArrayList<>();
+        for (List<Candidate> group : bySize.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            // Hard links to one file share its key; they already take no extra space, so one of them stands for all.
+            Map<Object, Candidate> distinct = new LinkedHashMap<>();
+            for (Candidate candidate : group) {
+                distinct.putIfAbsent(candidate.fileKey() != null ? candidate.fileKey() : candidate.path(), candidate);
+            }
+            if (distinct.size() >= 2) {
+                groups.add(new ArrayList<>(distinct.values()));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Hashes every candidate and splits each group by hash, keeping the parts with at least two files.
+     */
+    private static List<List<Candidate>> refine(List<List<Candidate>> groups, Stage stage, ToLongFunction<Candidate> weight,
+                                                int maxInFlight, Function<Candidate, CompletableFuture<byte[]>> hasher,
+                                                BooleanSupplier cancelled, Listener listener) {
+        long total = groups.stream().flatMap(List::stream).mapToLong(weight).sum();
+        AtomicLong done = new AtomicLong();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<List<CompletableFuture<byte[]>>> hashes = new ArrayList<>(groups.size());
+        listener.update(stage, 0, total);
+        submit:
+        for (List<Candidate> group : groups) {
+            List<CompletableFuture<byte[]>> groupHashes = new ArrayList<>(group.size());
+            hashes.add(groupHashes);
+            for (Candidate candidate : group) {
+                if (cancelled.getAsBoolean()) {
+                    break submit;
+                }
+                inFlight.acquireUninterruptibly();
+                groupHashes.add(hasher.apply(candidate).whenComplete((hash, error) -> {
+                    inFlight.release();
+                    listener.update(stage, done.addAndGet(weight.applyAsLong(candidate)), total);
+                }));
+            }
+        }
+        inFlight.acquireUninterruptibly(maxInFlight);
+
+        List<List<Candidate>> refined = new ArrayList<>();
+        for (int i = 0; i < hashes.size(); i++) {
+            Map<ByteBuffer, List<Candidate>> byHash = new LinkedHashMap<>();
+            List<CompletableFuture<byte[]>> groupHashes = hashes.get(i);
+            for (int j = 0; j < groupHashes.size(); j++) {
+                // Files that could not be read, or were cut short by cancelling, cannot be confirmed as duplicates.
+                byte[] hash = groupHashes.get(j).exceptionally(error -> null).join();
+                if (hash != null) {
+                    byHash.computeIfAbsent(ByteBuffer.wrap(hash), key -> new ArrayList<>(2)).add(groups.get(i).get(j));
+                }
+            }
+            for (List<Candidate> group : byHash.values()) {
+                if (group.size() >= 2) {
+                    refined.add(group);
+                }
+            }
+        }
+        return refined;
+    }
+
+    private byte[] partialHash(Candidate candidate) throws IOException {
+        byte[] cached = cache.getPartial(candidate.path(), candidate.size(), candidate.modified());
+        if (cached != null) {
+            return cached;
+        }
+        // Two small positional reads are cheaper than setting up a mapping for them.
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(candidate.size(), 2L * EDGE_SIZE));
+        try (FileChannel channel = FileChannel.open(candidate.path(), StandardOpenOption.READ)) {
+            readFully(channel, buffer.limit((int) Math.min(candidate.size(), EDGE_SIZE)), 0);
+            if (candidate.size() > EDGE_SIZE) {
+                long tail = Math.max(EDGE_SIZE, candidate.size() - EDGE_SIZE);
+                readFully(channel, buffer.limit(buffer.capacity()), tail);
+            }
+        }
+        digest.update(buffer.flip());
+        byte[] hash = digest.digest();
+        cache.putPartial(candidate.path(), candidate.size(), candidate.modified(), hash);
+        if (candidate.size() <= 2L * EDGE_SIZE) {
+            cache.putFull(candidate.path(), candidate.size(), candidate.modified(), hash);
+        }
+        return hash;
+    }
+
+    private byte[] fullHash(Candidate candidate, BooleanSupplier cancelled) throws IOException {
+        byte[] cached = cache.getFull(candidate.path(), candidate.size(), candidate.modified());
+        if (cached != null) {
+            return cached;
+        }
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(candidate.path(), StandardOpenOption.READ)) {
+            for (long position = 0; position < candidate.size(); position += MAP_WINDOW) {
+                if (cancelled.getAsBoolean()) {
+                    return null;
+                }
+                long length = Math.min(MAP_WINDOW, candidate.size() - position);
+                try {
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                } catch (InternalError e) {
+                    // Touching a mapped page of a file truncated meanwhile faults instead of reading short.
+                    throw new IOException("Файл змінився під час читання: " + candidate.path(), e);
+                }
+            }
+        }
+        byte[] hash = digest.digest();
+        cache.putFull(candidate.path(), candidate.size(), candidate.modified(), hash);
+        return hash;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Файл змінився під час читання");
+            }
+            position += read;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is required by every Java platform", e);
+        }
+    }
+
+    private static DuplicateGroup toGroup(List<Candidate> group) {
+        return new DuplicateGroup(group.get(0).size(), group.stream().map(Candidate::path).toList());
+    }
+}
@@ -0,0 +1,10 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public record DuplicateGroup(long size, List<Path> files) {
+    public long getWasted() {
+        return size * (files.size() - 1);
+    }
+}
@@ -0,0 +1,28 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class DuplicateSearchTask extends Task<List<DuplicateGroup>> {
+    private final SearchService search;
+    private final Path root;
+
+    public DuplicateSearchTask(SearchService search, Path root) {
+        this.search = search;
+        this.root = root;
+    }
+
+    @Override
+    protected List<DuplicateGroup> call() throws Exception {
+        return search.findDuplicates(root, this::isCancelled, (stage, done, total) -> {
+            updateProgress(done, total);
+            if (stage == DuplicateFinder.Stage.FULL) {
+                updateMessage(stage + ": " + ProgressWindow.formatBytes(done) + " з " + ProgressWindow.formatBytes(total));
+            } else {
+                updateMessage(stage + ": " + done + (total >= 0 ? " з " + total : ""));
+            }
+        });
+    }
+}
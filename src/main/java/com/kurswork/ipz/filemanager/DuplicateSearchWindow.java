@@ -0,0 +1,236 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Duplicate groups under a directory, one row per file. Selected copies can be deleted or replaced with hard
+ * links to a file of their group that stays unselected.
+ */
+public class DuplicateSearchWindow {
+    private final Stage stage = new Stage();
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private final TableView<Row> table = new TableView<>(rows);
+    private final Label statusLabel = new Label();
+    private final DuplicateSearchTask task;
+    private final OperationService operations;
+    private final PanelController panel;
+    private Executor executor;
+
+    private record Row(int group, Path file, long size) {
+    }
+
+    public DuplicateSearchWindow(SearchService search, OperationService operations, PanelController panel, Path root) {
+        this.task = new DuplicateSearchTask(search, root);
+        this.operations = operations;
+        this.panel = panel;
+
+        table.getColumns().add(createColumn("Група", 60, Row::group));
+        table.getColumns().add(createColumn("Файл", 560, row -> root.relativize(row.file()).toString()));
+        table.getColumns().add(createColumn("Розмір", 120, row -> ProgressWindow.formatBytes(row.size())));
+        table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Button cancelButton = new Button("Скасувати");
+        cancelButton.setOnAction(event -> task.cancel());
+        cancelButton.disableProperty().bind(task.runningProperty().not());
+        Button markButton = new Button("Позначити копії");
+        markButton.setOnAction(event -> markCopies());
+        Button deleteButton = new Button("Видалити");
+        deleteButton.setOnAction(event -> deleteSelected());
+        Button linkButton = new Button("Замінити жорсткими посиланнями");
+        linkButton.setOnAction(event -> linkSelected());
+        for (Button button : List.of(markButton, deleteButton, linkButton)) {
+            button.disableProperty().bind(task.runningProperty());
+        }
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressBar.visibleProperty().bind(task.runningProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        task.setOnSucceeded(event -> finish(task.getValue(), ""));
+        task.setOnCancelled(event -> finish(List.of(), " (скасовано)"));
+        task.setOnFailed(event -> finish(List.of(), " (помилка)"));
+
+        HBox controls = new HBox(10, cancelButton, markButton, deleteButton, linkButton, progressBar, statusLabel);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setPadding(new Insets(5));
+
+        stage.setTitle("Дублікати у " + root);
+        stage.setScene(new Scene(new VBox(controls, table), 900, 500));
+        stage.setOnHidden(event -> task.cancel());
+    }
+
+    public void show(Executor executor) {
+        this.executor = executor;
+        stage.show();
+        executor.execute(task);
+    }
+
+    private void finish(List<DuplicateGroup> groups, String suffix) {
+        List<Row> found = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            for (Path file : groups.get(i).files()) {
+                found.add(new Row(i + 1, file, groups.get(i).size()));
+            }
+        }
+        rows.setAll(found);
+        statusLabel.textProperty().unbind();
+        updateStatus(suffix);
+    }
+
+    private void updateStatus(String suffix) {
+        Map<Integer, List<Row>> groups = getGroups(rows);
+        long wasted = groups.values().stream().mapToLong(group -> group.get(0).size() * (group.size() - 1)).sum();
+        statusLabel.setText("Груп: " + groups.size() + ", зайве місце: " + ProgressWindow.formatBytes(wasted) + suffix);
+    }
+
+    /**
+     * Selects every file except the first of each group.
+     */
+    private void markCopies() {
+        table.getSelectionModel().clearSelection();
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (!seen.add(rows.get(i).group())) {
+                table.getSelectionModel().select(i);
+            }
+        }
+    }
+
+    private void deleteSelected() {
+        Map<Row, Path> originals = getOriginals();
+        if (originals == null) {
+            return;
+        }
+        List<Path> duplicates = originals.keySet().stream().map(Row::file).toList();
+        panel.runOperation("Видалення дублікатів (" + duplicates.size() + ")", () -> track(originals.keySet(),
+                operations.delete(duplicates)), null);
+    }
+
+    private void linkSelected() {
+        Map<Row, Path> originals = getOriginals();
+        if (originals == null) {
+            return;
+        }
+        List<Path> duplicates = originals.keySet().stream().map(Row::file).toList();
+        panel.runOperation("Заміна жорсткими посиланнями (" + duplicates.size() + ")", () -> track(originals.keySet(),
+                operations.link(List.copyOf(originals.values()), duplicates)), null);
+    }
+
+    /**
+     * Pairs each selected row with a file of its group left unselected, or returns null when a group is
+     * selected whole, since nothing of it would be left.
+     */
+    private Map<Row, Path> getOriginals() {
+        Set<Row> selected = new HashSet<>(table.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
+            return null;
+        }
+        Map<Row, Path> originals = new LinkedHashMap<>();
+        for (List<Row> group : getGroups(rows).values()) {
+            Row original = group.stream().filter(row -> !selected.contains(row)).findFirst().orElse(null);
+            if (original == null) {
+                showAlert("У кожній групі має лишитися хоча б один невибраний файл.");
+                return null;
+            }
+            group.stream().filter(selected::contains).forEach(row -> originals.put(row, original.file()));
+        }
+        return originals;
+    }
+
+    private JobBatch track(Set<Row> processed, JobBatch batch) {
+        Set<Integer> groups = new HashSet<>();
+        processed.forEach(row -> groups.add(row.group()));
+        List<Row> affected = rows.stream().filter(row -> groups.contains(row.group())).toList();
+        batch.getCompletion().whenComplete((result, error) -> executor.execute(() -> refresh(affected)));
+        return batch;
+    }
+
+    /**
+     * Re-checks the groups touched by an operation off the FX thread, dropping files that are gone and groups
+     * that no longer hold two separate copies.
+     */
+    private void refresh(List<Row> affected) {
+        Set<Row> stale = new HashSet<>();
+        for (List<Row> group : getGroups(affected).values()) {
+            Set<Object> keys = new HashSet<>();
+            List<Row> remaining = new ArrayList<>();
+            for (Row row : group) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(row.file(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    // Files linked together now count once.
+                    if (keys.add(attrs.fileKey() != null ? attrs.fileKey() : row.file())) {
+                        remaining.add(row);
+                        continue;
+                    }
+                } catch (IOException e) {
+                    // A file that cannot be read any more has been deleted or moved away.
+                }
+                stale.add(row);
+            }
+            if (remaining.size() < 2) {
+                stale.addAll(remaining);
+            }
+        }
+        Platform.runLater(() -> {
+            rows.removeAll(stale);
+            table.getSelectionModel().clearSelection();
+            updateStatus("");
+        });
+    }
+
+    private static Map<Integer, List<Row>> getGroups(List<Row> rows) {
+        Map<Integer, List<Row>> groups = new LinkedHashMap<>();
+        for (Row row : rows) {
+            groups.computeIfAbsent(row.group(), group -> new ArrayList<>()).add(row);
+        }
+        return groups;
+    }
+
+    private void showAlert(String message) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.initOwner(stage);
+        alert.setTitle("Дублікати");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
+    private static <T> TableColumn<Row, T> createColumn(String title, double width, Function<Row, T> value) {
+        TableColumn<Row, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(value.apply(param.getValue())));
+        column.setPrefWidth(width);
+        column.setSortable(false);
+        return column;
+    }
+}
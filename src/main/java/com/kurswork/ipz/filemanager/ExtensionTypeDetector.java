@@ -0,0 +1,68 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+public class ExtensionTypeDetector implements TypeDetector {
+    private static final Map<String, String> TYPES = Map.ofEntries(
+            Map.entry("txt", "text/plain"),
+            Map.entry("log", "text/plain"),
+            Map.entry("md", "text/markdown"),
+            Map.entry("csv", "text/csv"),
+            Map.entry("html", "text/html"),
+            Map.entry("htm", "text/html"),
+            Map.entry("css", "text/css"),
+            Map.entry("xml", "text/xml"),
+            Map.entry("fxml", "text/xml"),
+            Map.entry("json", "application/json"),
+            Map.entry("yml", "text/yaml"),
+            Map.entry("yaml", "text/yaml"),
+            Map.entry("properties", "text/plain"),
+            Map.entry("ini", "text/plain"),
+            Map.entry("java", "text/x-java"),
+            Map.entry("kt", "text/x-kotlin"),
+            Map.entry("js", "text/javascript"),
+            Map.entry("ts", "text/x-typescript"),
+            Map.entry("py", "text/x-python"),
+            Map.entry("c", "text/x-c"),
+            Map.entry("h", "text/x-c"),
+            Map.entry("cpp", "text/x-c++"),
+            Map.entry("sh", "text/x-shellscript"),
+            Map.entry("sql", "text/x-sql"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("bmp", "image/bmp"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("mp4", "video/mp4"),
+            Map.entry("m4v", "video/mp4"),
+            Map.entry("flv", "video/x-flv"),
+            Map.entry("mkv", "video/x-matroska"),
+            Map.entry("webm", "video/webm"),
+            Map.entry("avi", "video/x-msvideo"),
+            Map.entry("mp3", "audio/mpeg"),
+            Map.entry("wav", "audio/wav"),
+            Map.entry("ogg", "audio/ogg"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("zip", "application/zip"),
+            Map.entry("jar", "application/java-archive"),
+            Map.entry("gz", "application/gzip"),
+            Map.entry("tar", "application/x-tar"));
+
+    public static String lookup(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot <= 0 || dot == filename.length() - 1) {
+            return null;
+        }
+        return TYPES.get(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public String detect(Path path) {
+        Path filename = path.getFileName();
+        return filename != null ? lookup(filename.toString()) : null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.kurswork.ipz.filemanager;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public abstract class FileBatchTask extends BatchTask<FileInfo> {
+    protected FileBatchTask(Consumer<List<FileInfo>> batchConsumer) {
+        super(batchConsumer);
+    }
+}
@@ -0,0 +1,336 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+public class FileIndex {
+    private static final int TRIGRAM_BITS = 20;
+    private static final int TRIGRAM_BUCKETS = 1 << TRIGRAM_BITS;
+    private static final int MAX_UNINDEXED = 8192;
+    private static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+
+    private final Path root;
+    private final IoScheduler io;
+    private final String separator;
+    private final List<String> directories = new ArrayList<>();
+    private final Map<String, Integer> directoryIds = new HashMap<>();
+    private String[] names = new String[1024];
+    private int[] parents = new int[1024];
+    // Each directory's entries as a linked list, so a directory is refreshed or removed without a full scan.
+    private int[] nextSiblings = new int[1024];
+    private int[] firstChildren = new int[64];
+    private int size;
+    private final BitSet removed = new BitSet();
+    private int[] bucketStarts;
+    private int[] postings;
+    private int indexedSize;
+    private long builtAt;
+
+    private record Listing(String directory, List<String> names, List<Listing> children) {
+    }
+
+    private record Entries(List<String> names, List<String> directories) {
+    }
+
+    public FileIndex(Path root, IoScheduler io) {
+        this.root = root;
+        this.io = io;
+        this.separator = root.getFileSystem().getSeparator();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public synchronized boolean isBuilt() {
+        return bucketStarts != null;
+    }
+
+    public synchronized boolean isStale() {
+        return isBuilt() && System.currentTimeMillis() - builtAt > MAX_AGE_MILLIS;
+    }
+
+    public boolean covers(Path directory) {
+        return directory.startsWith(root);
+    }
+
+    public synchronized void build(BooleanSupplier cancelled) {
+        if (isBuilt()) {
+            return;
+        }
+        Listing listing = walk(root, "", io.laneFor(root), cancelled).join();
+        if (cancelled.getAsBoolean()) {
+            return;
+        }
+        add(listing);
+        buildPostings();
+        builtAt = System.currentTimeMillis();
+    }
+
+    public void search(FileQuery query, BooleanSupplier cancelled, Consumer<String> results) {
+        search(root, query, cancelled, results);
+    }
+
+    /**
+     * Reports matches under a directory the index covers, named relative to that directory.
+     */
+    public synchronized void search(Path directory, FileQuery query, BooleanSupplier cancelled, Consumer<String> results) {
+        if (!isBuilt() || !covers(directory)) {
+            return;
+        }
+        String relative = relativize(directory);
+        String prefix = relative.isEmpty() ? "" : relative + separator;
+        Consumer<String> filtered = prefix.isEmpty() ? results : path -> {
+            if (path.startsWith(prefix)) {
+                results.accept(path.substring(prefix.length()));
+            }
+        };
+        String literal = query.getLiteral();
+        if (literal.length() >= 3) {
+            for (int id : findCandidates(literal)) {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                accept(id, query, filtered);
+            }
+            for (int id = indexedSize; id < size && !cancelled.getAsBoolean(); id++) {
+                accept(id, query, filtered);
+            }
+        } else {
+            for (int id = 0; id < size && !cancelled.getAsBoolean(); id++) {
+                accept(id, query, filtered);
+            }
+        }
+    }
+
+    public synchronized void refreshDirectory(Path directory) {
+        Integer directoryId = isBuilt() && covers(directory) ? directoryIds.get(relativize(directory)) : null;
+        if (directoryId == null) {
+            return;
+        }
+        Set<String> onDisk = new HashSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                onDisk.add(entry.getFileName().toString());
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // A directory that can no longer be read is treated as empty.
+        }
+        for (int id = firstChildren[directoryId]; id >= 0; id = nextSiblings[id]) {
+            if (!removed.get(id) && !onDisk.remove(names[id])) {
+                remove(id);
+            }
+        }
+        String relative = directories.get(directoryId);
+        for (String name : onDisk) {
+            Path entry = directory.resolve(name);
+            addEntry(directoryId, name);
+            if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                add(walk(entry, child(relative, name), io.laneFor(directory), () -> false).join());
+            }
+        }
+        if (size - indexedSize > MAX_UNINDEXED || removed.cardinality() > size / 4) {
+            compact();
+            buildPostings();
+        }
+    }
+
+    private void accept(int id, FileQuery query, Consumer<String> results) {
+        if (!removed.get(id) && query.matches(names[id])) {
+            results.accept(child(directories.get(parents[id]), names[id]));
+        }
+    }
+
+    private int[] findCandidates(String literal) {
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= literal.length(); i++) {
+            int bucket = trigram(literal.charAt(i), literal.charAt(i + 1), literal.charAt(i + 2));
+            lists.add(Arrays.copyOfRange(postings, bucketStarts[bucket], bucketStarts[bucket + 1]));
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] candidates = lists.get(0);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists.get(i));
+        }
+        return candidates;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                result[count++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void buildPostings() {
+        int[] starts = new int[TRIGRAM_BUCKETS + 1];
+        int[] lastIds = new int[TRIGRAM_BUCKETS];
+        Arrays.fill(lastIds, -1);
+        for (int id = 0; id < size; id++) {
+            String name = names[id];
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                int bucket = trigram(name.charAt(i), name.charAt(i + 1), name.charAt(i + 2));
+                if (lastIds[bucket] != id) {
+                    lastIds[bucket] = id;
+                    starts[bucket + 1]++;
+                }
+            }
+        }
+        for (int bucket = 0; bucket < TRIGRAM_BUCKETS; bucket++) {
+            starts[bucket + 1] += starts[bucket];
+        }
+        int[] entries = new int[starts[TRIGRAM_BUCKETS]];
+        int[] positions = Arrays.copyOf(starts, TRIGRAM_BUCKETS);
+        Arrays.fill(lastIds, -1);
+        for (int id = 0; id < size; id++) {
+            String name = names[id];
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                int bucket = trigram(name.charAt(i), name.charAt(i + 1), name.charAt(i + 2));
+                if (lastIds[bucket] != id) {
+                    lastIds[bucket] = id;
+                    entries[positions[bucket]++] = id;
+                }
+            }
+        }
+        bucketStarts = starts;
+        postings = entries;
+        indexedSize = size;
+    }
+
+    private static int trigram(char a, char b, char c) {
+        int hash = (Character.toLowerCase(a) * 961 + Character.toLowerCase(b) * 31 + Character.toLowerCase(c)) * 0x9E3779B1;
+        return hash >>> (32 - TRIGRAM_BITS);
+    }
+
+    private void add(Listing listing) {
+        int directoryId = directoryIds.computeIfAbsent(listing.directory(), directory -> {
+            directories.add(directory);
+            if (directories.size() > firstChildren.length) {
+                firstChildren = Arrays.copyOf(firstChildren, firstChildren.length * 2);
+            }
+            firstChildren[directories.size() - 1] = -1;
+            return directories.size() - 1;
+        });
+        for (String name : listing.names()) {
+            addEntry(directoryId, name);
+        }
+        for (Listing child : listing.children()) {
+            add(child);
+        }
+    }
+
+    private void addEntry(int directoryId, String name) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            parents = Arrays.copyOf(parents, size * 2);
+            nextSiblings = Arrays.copyOf(nextSiblings, size * 2);
+        }
+        names[size] = name;
+        parents[size] = directoryId;
+        nextSiblings[size] = firstChildren[directoryId];
+        firstChildren[directoryId] = size;
+        size++;
+    }
+
+    private void remove(int id) {
+        removed.set(id);
+        String path = child(directories.get(parents[id]), names[id]);
+        Integer directoryId = directoryIds.remove(path);
+        if (directoryId == null) {
+            return;
+        }
+        for (int child = firstChildren[directoryId]; child >= 0; child = nextSiblings[child]) {
+            if (!removed.get(child)) {
+                remove(child);
+            }
+        }
+    }
+
+    private void compact() {
+        int live = 0;
+        for (int id = 0; id < size; id++) {
+            if (!removed.get(id)) {
+                names[live] = names[id];
+                parents[live] = parents[id];
+                live++;
+            }
+        }
+        Arrays.fill(names, live, size, null);
+        size = live;
+        removed.clear();
+        Arrays.fill(firstChildren, -1);
+        for (int id = 0; id < size; id++) {
+            nextSiblings[id] = firstChildren[parents[id]];
+            firstChildren[parents[id]] = id;
+        }
+    }
+
+    private String relativize(Path directory) {
+        return root.relativize(directory).toString();
+    }
+
+    private String child(String directory, String name) {
+        return directory.isEmpty() ? name : directory + separator + name;
+    }
+
+    /**
+     * Lists one directory on the file store's I/O lane, then its subdirectories the same way. Parents wait by
+     * composition, so the walk never blocks a pool thread, and it shares the lane's limit with other disk work.
+     */
+    private CompletableFuture<Listing> walk(Path directory, String relative, IoScheduler.Lane lane, BooleanSupplier cancelled) {
+        return io.submit(lane, () -> read(directory, cancelled)).thenCompose(entries -> {
+            List<CompletableFuture<Listing>> children = new ArrayList<>(entries.directories().size());
+            for (String name : entries.directories()) {
+                children.add(walk(directory.resolve(name), child(relative, name), lane, cancelled));
+            }
+            return CompletableFuture.allOf(children.toArray(new CompletableFuture<?>[0])).thenApply(done ->
+                    new Listing(relative, entries.names(), children.stream().map(CompletableFuture::join).toList()));
+        });
+    }
+
+    private static Entries read(Path directory, BooleanSupplier cancelled) {
+        List<String> names = new ArrayList<>();
+        List<String> directories = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (cancelled.getAsBoolean()) {
+                    break;
+                }
+                String name = entry.getFileName().toString();
+                names.add(name);
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    directories.add(name);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // Unreadable directories are left out of the index.
+        }
+        return new Entries(names, directories);
+    }
+}
@@ -1,14 +1,27 @@
 package com.kurswork.ipz.filemanager;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
 public class FileInfo {
+    public static final long DIRECTORY_SIZE = -1L;
+    public static final long UNKNOWN_SIZE = -2L;
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
     public enum FileType {
-        FILE("F"), DIRECTORY("D");
+        FILE("F"), DIRECTORY("D"), UNKNOWN("?");
 
         private final String type;
 
@@ -24,7 +37,8 @@ public class FileInfo {
     private final String filename;
     private final FileType type;
     private final long size;
-    private final LocalDateTime lastModified;
+    private final long lastModified;
+    private ObservableValue<FileInfo> observable;
 
     public String getFilename() {
         return filename;
@@ -39,29 +53,71 @@ public class FileInfo {
     }
 
     public LocalDateTime getLastModified() {
+        return lastModified == UNKNOWN_TIME ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneOffset.UTC);
+    }
+
+    public long getLastModifiedMillis() {
         return lastModified;
     }
 
-    public FileInfo(Path path) {
-        this.filename = path.getFileName().toString();
-        this.type = Files.isDirectory(path) ? FileType.DIRECTORY : FileType.FILE;
-        this.size = getFileSize(path);
-        this.lastModified = getLastModifiedTime(path);
+    public FileInfo withFilename(String filename) {
+        return new FileInfo(filename, type, size, lastModified);
     }
 
-    private long getFileSize(Path path) {
+    public ObservableValue<FileInfo> asObservable() {
+        if (observable == null) {
+            observable = new ReadOnlyObjectWrapper<>(this);
+        }
+        return observable;
+    }
+
+    FileInfo(String filename, FileType type, long size, long lastModified) {
+        this.filename = filename;
+        this.type = type;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public static FileInfo of(Path path) {
         try {
-            return Files.isDirectory(path) ? -1L : Files.size(path);
+            return of(path, Files.readAttributes(path, BasicFileAttributes.class));
         } catch (IOException e) {
-            throw new RuntimeException("Не вдається отримати розмір файлу для шляху: " + path, e);
+            return ofLink(path);
         }
     }
 
-    private LocalDateTime getLastModifiedTime(Path path) {
+    public static FileInfo of(DirectoryStream<Path> directory, Path entry) {
+        if (!(directory instanceof SecureDirectoryStream<Path> secureDirectory)) {
+            return of(entry);
+        }
         try {
-            return LocalDateTime.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneOffset.UTC);
+            BasicFileAttributeView view = secureDirectory.getFileAttributeView(entry.getFileName(), BasicFileAttributeView.class);
+            return of(entry, view.readAttributes());
         } catch (IOException e) {
-            throw new RuntimeException("Неможливо отримати час останньої зміни шляху: " + path, e);
+            return ofLink(entry);
         }
     }
-}
\ No newline at end of file
+
+    public static FileInfo of(Path path, BasicFileAttributes attributes) {
+        FileType type = attributes.isDirectory() ? FileType.DIRECTORY : FileType.FILE;
+        long size = attributes.isDirectory() ? DIRECTORY_SIZE : attributes.size();
+        return new FileInfo(getFilename(path), type, size, attributes.lastModifiedTime().toMillis());
+    }
+
+    public static FileInfo unreadable(Path path) {
+        return new FileInfo(getFilename(path), FileType.UNKNOWN, UNKNOWN_SIZE, UNKNOWN_TIME);
+    }
+
+    private static FileInfo ofLink(Path path) {
+        try {
+            return of(path, Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+        } catch (IOException e) {
+            return unreadable(path);
+        }
+    }
+
+    private static String getFilename(Path path) {
+        Path filename = path.getFileName();
+        return filename != null ? filename.toString() : path.toString();
+    }
+}
@@ -0,0 +1,265 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class FileInfoColumns {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int AVERAGE_NAME_LENGTH = 24;
+    private static final FileInfo.FileType[] TYPES = FileInfo.FileType.values();
+
+    private byte[] names;
+    private int[] nameOffsets;
+    private byte[] types;
+    private long[] sizes;
+    private long[] lastModified;
+    private int size;
+
+    public FileInfoColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public FileInfoColumns(int capacity) {
+        capacity = Math.max(capacity, 1);
+        names = new byte[capacity * AVERAGE_NAME_LENGTH];
+        nameOffsets = new int[capacity + 1];
+        types = new byte[capacity];
+        sizes = new long[capacity];
+        lastModified = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(FileInfo fileInfo) {
+        add(fileInfo.getFilename(), fileInfo.getType(), fileInfo.getSize(), fileInfo.getLastModifiedMillis());
+    }
+
+    public void add(String filename, FileInfo.FileType type, long fileSize, long modified) {
+        byte[] name = filename.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(size + 1);
+        int nameStart = nameOffsets[size];
+        ensureNameCapacity(nameStart + name.length);
+        System.arraycopy(name, 0, names, nameStart, name.length);
+        nameOffsets[size + 1] = nameStart + name.length;
+        types[size] = (byte) type.ordinal();
+        sizes[size] = fileSize;
+        lastModified[size] = modified;
+        size++;
+    }
+
+    public void set(int index, FileInfo fileInfo) {
+        Objects.checkIndex(index, size);
+        types[index] = (byte) fileInfo.getType().ordinal();
+        sizes[index] = fileInfo.getSize();
+        lastModified[index] = fileInfo.getLastModifiedMillis();
+    }
+
+    public int indexOf(String filename) {
+        byte[] name = filename.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++) {
+            int start = nameOffsets[i];
+            if (Arrays.equals(names, start, nameOffsets[i + 1], name, 0, name.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public Map<String, Integer> indexesOf(Collection<String> filenames) {
+        Map<ByteBuffer, String> wanted = new HashMap<>();
+        for (String filename : filenames) {
+            wanted.put(ByteBuffer.wrap(filename.getBytes(StandardCharsets.UTF_8)), filename);
+        }
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < size && indexes.size() < wanted.size(); i++) {
+            String filename = wanted.get(ByteBuffer.wrap(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i]));
+            if (filename != null) {
+                indexes.put(filename, i);
+            }
+        }
+        return indexes;
+    }
+
+    public void removeAll(BitSet indexes) {
+        int live = 0;
+        int nameEnd = 0;
+        for (int i = 0; i < size; i++) {
+            if (indexes.get(i)) {
+                continue;
+            }
+            int nameStart = nameOffsets[i];
+            int nameLength = nameOffsets[i + 1] - nameStart;
+            System.arraycopy(names, nameStart, names, nameEnd, nameLength);
+            nameOffsets[live] = nameEnd;
+            nameEnd += nameLength;
+            types[live] = types[i];
+            sizes[live] = sizes[i];
+            lastModified[live] = lastModified[i];
+            live++;
+        }
+        nameOffsets[live] = nameEnd;
+        size = live;
+    }
+
+    public FileInfoColumns copy() {
+        FileInfoColumns copy = new FileInfoColumns(size);
+        copy.names = Arrays.copyOf(names, nameOffsets[size]);
+        System.arraycopy(nameOffsets, 0, copy.nameOffsets, 0, size + 1);
+        System.arraycopy(types, 0, copy.types, 0, size);
+        System.arraycopy(sizes, 0, copy.sizes, 0, size);
+        System.arraycopy(lastModified, 0, copy.lastModified, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    public void addAll(FileInfoColumns other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.getFilename(i), other.getType(i), other.sizes[i], other.lastModified[i]);
+        }
+    }
+
+    /**
+     * Returns the given rows, in the given order, as new columns. Names are copied as raw bytes without decoding.
+     */
+    public FileInfoColumns select(int[] indexes, int count) {
+        FileInfoColumns selection = new FileInfoColumns(count);
+        int nameLength = 0;
+        for (int i = 0; i < count; i++) {
+            nameLength += nameOffsets[indexes[i] + 1] - nameOffsets[indexes[i]];
+        }
+        selection.names = new byte[nameLength];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            int index = indexes[i];
+            int start = nameOffsets[index];
+            int length = nameOffsets[index + 1] - start;
+            System.arraycopy(names, start, selection.names, offset, length);
+            offset += length;
+            selection.nameOffsets[i + 1] = offset;
+            selection.types[i] = types[index];
+            selection.sizes[i] = sizes[index];
+            selection.lastModified[i] = lastModified[index];
+        }
+        selection.size = count;
+        return selection;
+    }
+
+    /**
+     * Number of bytes {@link #write(ByteBuffer)} produces.
+     */
+    int byteSize() {
+        return 8 + nameOffsets[size] + (size + 1) * 4 + size + size * 16;
+    }
+
+    /**
+     * Writes the columns in a layout that {@link #read(ByteBuffer)} copies straight back into arrays.
+     */
+    void write(ByteBuffer buffer) {
+        buffer.putInt(size);
+        buffer.putInt(nameOffsets[size]);
+        buffer.put(names, 0, nameOffsets[size]);
+        buffer.asIntBuffer().put(nameOffsets, 0, size + 1);
+        buffer.position(buffer.position() + (size + 1) * 4);
+        buffer.put(types, 0, size);
+        buffer.asLongBuffer().put(sizes, 0, size);
+        buffer.position(buffer.position() + size * 8);
+        buffer.asLongBuffer().put(lastModified, 0, size);
+        buffer.position(buffer.position() + size * 8);
+    }
+
+    static FileInfoColumns read(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        int nameLength = buffer.getInt();
+        // Checked before allocating, so a damaged count cannot ask for a huge or negative array.
+        if (count < 0 || nameLength < 0 || nameLength + (count + 1L) * 4 + count * 17L > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupted columns");
+        }
+        FileInfoColumns columns = new FileInfoColumns(count);
+        columns.names = new byte[nameLength];
+        buffer.get(columns.names);
+        buffer.asIntBuffer().get(columns.nameOffsets, 0, count + 1);
+        buffer.position(buffer.position() + (count + 1) * 4);
+        buffer.get(columns.types, 0, count);
+        buffer.asLongBuffer().get(columns.sizes, 0, count);
+        buffer.position(buffer.position() + count * 8);
+        buffer.asLongBuffer().get(columns.lastModified, 0, count);
+        buffer.position(buffer.position() + count * 8);
+        for (int i = 0; i < count; i++) {
+            // Bad offsets or types would only fail later, while rendering, so they are rejected here.
+            if (columns.nameOffsets[i] > columns.nameOffsets[i + 1] || columns.types[i] < 0 || columns.types[i] >= TYPES.length) {
+                throw new IllegalArgumentException("Corrupted columns");
+            }
+        }
+        if (columns.nameOffsets[0] != 0 || columns.nameOffsets[count] != nameLength) {
+            throw new IllegalArgumentException("Corrupted columns");
+        }
+        columns.size = count;
+        return columns;
+    }
+
+    public String getFilename(int index) {
+        int start = nameOffsets[index];
+        return new String(names, start, nameOffsets[index + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    public FileInfo.FileType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public long getLastModified(int index) {
+        return lastModified[index];
+    }
+
+    public FileInfo get(int index) {
+        return new FileInfo(getFilename(index), getType(index), sizes[index], lastModified[index]);
+    }
+
+    public List<FileInfo> asList() {
+        return new AbstractList<>() {
+            @Override
+            public FileInfo get(int index) {
+                return FileInfoColumns.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= types.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, types.length + (types.length >> 1));
+        nameOffsets = Arrays.copyOf(nameOffsets, newCapacity + 1);
+        types = Arrays.copyOf(types, newCapacity);
+        sizes = Arrays.copyOf(sizes, newCapacity);
+        lastModified = Arrays.copyOf(lastModified, newCapacity);
+    }
+
+    private void ensureNameCapacity(int capacity) {
+        if (capacity > names.length) {
+            names = Arrays.copyOf(names, Math.max(capacity, names.length + (names.length >> 1)));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+public class FileInfoList extends ObservableListBase<FileInfo> {
+    private static final int VIEW_CACHE_SIZE = 512;
+
+    private FileInfoColumns columns = new FileInfoColumns();
+    private final FileInfo[] views = new FileInfo[VIEW_CACHE_SIZE];
+    private final int[] viewIndexes = new int[VIEW_CACHE_SIZE];
+
+    public FileInfoList() {
+        Arrays.fill(viewIndexes, -1);
+    }
+
+    public FileInfoColumns getColumns() {
+        return columns;
+    }
+
+    @Override
+    public FileInfo get(int index) {
+        Objects.checkIndex(index, columns.size());
+        int slot = index % VIEW_CACHE_SIZE;
+        if (viewIndexes[slot] != index) {
+            views[slot] = columns.get(index);
+            viewIndexes[slot] = index;
+        }
+        return views[slot];
+    }
+
+    @Override
+    public int size() {
+        return columns.size();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends FileInfo> fileInfos) {
+        if (fileInfos.isEmpty()) {
+            return false;
+        }
+        int from = columns.size();
+        for (FileInfo fileInfo : fileInfos) {
+            columns.add(fileInfo);
+        }
+        beginChange();
+        nextAdd(from, columns.size());
+        endChange();
+        return true;
+    }
+
+    @Override
+    public boolean setAll(Collection<? extends FileInfo> fileInfos) {
+        FileInfoColumns replacement = new FileInfoColumns(fileInfos.size());
+        for (FileInfo fileInfo : fileInfos) {
+            replacement.add(fileInfo);
+        }
+        setColumns(replacement);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (!columns.isEmpty()) {
+            setColumns(new FileInfoColumns());
+        }
+    }
+
+    public void setColumns(FileInfoColumns replacement) {
+        FileInfoColumns previous = columns;
+        columns = replacement;
+        Arrays.fill(viewIndexes, -1);
+        Arrays.fill(views, null);
+        beginChange();
+        if (!previous.isEmpty()) {
+            nextRemove(0, previous.asList());
+        }
+        if (!replacement.isEmpty()) {
+            nextAdd(0, replacement.size());
+        }
+        endChange();
+    }
+}
@@ -0,0 +1,105 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+public record FileJob(Kind kind, Path source, Path target) {
+    public enum Kind {
+        COPY("Копіювання", false),
+        MOVE("Переміщення", true),
+        DELETE("Видалення", true),
+        PURGE("Очищення кошика", true),
+        CREATE_FILE("Створення файлу", false),
+        CREATE_DIRECTORY("Створення папки", false),
+        SYNC("Синхронізація", false),
+        PACK("Пакування", false),
+        LINK("Заміна жорстким посиланням", true);
+
+        private final String title;
+        private final boolean destructive;
+
+        Kind(String title, boolean destructive) {
+            this.title = title;
+            this.destructive = destructive;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Whether the job removes or replaces files the user still has, so resuming it needs their consent.
+         */
+        public boolean isDestructive() {
+            return destructive;
+        }
+    }
+
+    public static FileJob copy(Path source, Path targetDirectory) {
+        return new FileJob(Kind.COPY, source, targetDirectory);
+    }
+
+    public static FileJob sync(Path source, Path targetDirectory) {
+        return new FileJob(Kind.SYNC, source, targetDirectory);
+    }
+
+    public static FileJob pack(Path source, Path archive) {
+        return new FileJob(Kind.PACK, source, archive);
+    }
+
+    /**
+     * Replaces the duplicate with a hard link to the original.
+     */
+    public static FileJob link(Path original, Path duplicate) {
+        return new FileJob(Kind.LINK, original, duplicate);
+    }
+
+    public static FileJob move(Path source, Path target) {
+        return new FileJob(Kind.MOVE, source, target);
+    }
+
+    public static FileJob delete(Path source) {
+        return new FileJob(Kind.DELETE, source, null);
+    }
+
+    public static FileJob purge(Path trashed) {
+        return new FileJob(Kind.PURGE, trashed, null);
+    }
+
+    public static FileJob createFile(Path path) {
+        return new FileJob(Kind.CREATE_FILE, null, path);
+    }
+
+    public static FileJob createDirectory(Path path) {
+        return new FileJob(Kind.CREATE_DIRECTORY, null, path);
+    }
+
+    public Path device() {
+        return source != null ? source : target.getParent();
+    }
+
+    String encode() {
+        return kind + "\t" + encode(source) + "\t" + encode(target);
+    }
+
+    static FileJob decode(String[] fields, int offset) {
+        return new FileJob(Kind.valueOf(fields[offset]), decode(fields[offset + 1]), decode(fields[offset + 2]));
+    }
+
+    private static String encode(Path path) {
+        return path == null ? "-" : path.toUri().toString();
+    }
+
+    private static Path decode(String value) {
+        if (value.equals("-")) {
+            return null;
+        }
+        try {
+            return ArchiveFileSystems.fromUri(URI.create(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
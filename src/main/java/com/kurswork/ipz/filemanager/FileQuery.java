@@ -0,0 +1,79 @@
+package com.kurswork.ipz.filemanager;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+public class FileQuery {
+    private static final String REGEX_PREFIX = "re:";
+
+    private final String literal;
+    private final boolean plain;
+    private final Predicate<String> matcher;
+
+    private FileQuery(String literal, boolean plain, Predicate<String> matcher) {
+        this.literal = literal;
+        this.plain = plain;
+        this.matcher = matcher;
+    }
+
+    public static FileQuery parse(String query) {
+        if (query.startsWith(REGEX_PREFIX)) {
+            Pattern pattern = Pattern.compile(query.substring(REGEX_PREFIX.length()), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return new FileQuery("", false, name -> pattern.matcher(name).find());
+        }
+        if (query.indexOf('*') >= 0 || query.indexOf('?') >= 0) {
+            Pattern pattern = Pattern.compile(globToRegex(query), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return new FileQuery(longestLiteral(query), false, name -> pattern.matcher(name).matches());
+        }
+        return new FileQuery(query, true, name -> containsIgnoreCase(name, query));
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public boolean matches(String filename) {
+        return matcher.test(filename);
+    }
+
+    /**
+     * Whether every name matching this query also matches the previous one, so this query can be applied
+     * to the previous results instead of the full listing.
+     */
+    public boolean narrows(FileQuery previous) {
+        return plain && previous.plain && containsIgnoreCase(literal, previous.literal);
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literalPart = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                regex.append(Pattern.quote(literalPart.toString())).append(c == '*' ? ".*" : ".");
+                literalPart.setLength(0);
+            } else {
+                literalPart.append(c);
+            }
+        }
+        return regex.append(Pattern.quote(literalPart.toString())).toString();
+    }
+
+    private static String longestLiteral(String glob) {
+        String longest = "";
+        for (String part : glob.split("[*?]")) {
+            if (part.length() > longest.length()) {
+                longest = part;
+            }
+        }
+        return longest;
+    }
+
+    private static boolean containsIgnoreCase(String name, String query) {
+        for (int i = 0; i + query.length() <= name.length(); i++) {
+            if (name.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
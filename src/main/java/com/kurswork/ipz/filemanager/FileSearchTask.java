@@ -0,0 +1,31 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class FileSearchTask extends FileBatchTask {
+    private final SearchService search;
+    private final Path root;
+    private final FileQuery query;
+
+    public FileSearchTask(SearchService search, Path root, FileQuery query, Consumer<List<FileInfo>> batchConsumer) {
+        super(batchConsumer);
+        this.search = search;
+        this.root = root;
+        this.query = query;
+    }
+
+    @Override
+    protected void produce() {
+        if (!search.isIndexed(root)) {
+            updateMessage("Індексація...");
+        }
+        search.search(root, query, this::isCancelled, this::emit);
+    }
+
+    @Override
+    protected String getProgressMessage(int count) {
+        return "Пошук... " + count;
+    }
+}
@@ -0,0 +1,85 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class FileTypes {
+    public static final String UNKNOWN = "unknown";
+    private static final int MAX_ENTRIES = 4096;
+    private static final Set<String> TEXT_APPLICATION_TYPES = Set.of("application/json", "application/xml", "application/javascript");
+
+    private final List<TypeDetector> detectors;
+    private final Map<Path, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public FileTypes(List<TypeDetector> detectors) {
+        this.detectors = List.copyOf(detectors);
+    }
+
+    public static FileTypes createDefault() {
+        return new FileTypes(List.of(new ExtensionTypeDetector(), new MagicTypeDetector(), Files::probeContentType));
+    }
+
+    /**
+     * Asks each detector in order and remembers the answer until the file's modification time changes.
+     */
+    public String getMimeType(Path path) {
+        long lastModified;
+        try {
+            lastModified = Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+        synchronized (cache) {
+            Entry entry = cache.get(path);
+            if (entry != null && entry.lastModified() == lastModified) {
+                return entry.mimeType();
+            }
+        }
+        String mimeType = null;
+        for (TypeDetector detector : detectors) {
+            try {
+                mimeType = detector.detect(path);
+            } catch (IOException e) {
+                // A failing detector just passes the question on to the next one.
+            }
+            if (mimeType != null) {
+                break;
+            }
+        }
+        synchronized (cache) {
+            cache.put(path, new Entry(lastModified, mimeType));
+        }
+        return mimeType;
+    }
+
+    /**
+     * Returns "text", "image", "video", "audio" or another top-level MIME category, or {@link #UNKNOWN}.
+     */
+    public String getCategory(Path path) {
+        return category(getMimeType(path));
+    }
+
+    public static String category(String mimeType) {
+        if (mimeType == null) {
+            return UNKNOWN;
+        }
+        if (TEXT_APPLICATION_TYPES.contains(mimeType)) {
+            return "text";
+        }
+        int slash = mimeType.indexOf('/');
+        return slash < 0 ? mimeType : mimeType.substring(0, slash);
+    }
+
+    private record Entry(long lastModified, String mimeType) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Posts a no-op to the FX thread at a fixed interval and records how late it runs. A late ping means the FX
+ * thread was busy (layout, rendering or blocking work in a handler) rather than waiting on the filesystem.
+ */
+public class FxStallDetector {
+    private static final long PING_INTERVAL_MILLIS = 50;
+
+    private final long thresholdNanos;
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    public FxStallDetector(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    public void start() {
+        Thread thread = new Thread(this::run, "fx-stall-detector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                Thread.sleep(PING_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Only one ping is outstanding, so a long stall is measured once instead of piling up pings.
+            if (!pending.compareAndSet(false, true)) {
+                continue;
+            }
+            FxStallEvent event = new FxStallEvent();
+            event.begin();
+            long posted = System.nanoTime();
+            Platform.runLater(() -> {
+                long delay = System.nanoTime() - posted;
+                pending.set(false);
+                if (delay >= thresholdNanos) {
+                    Metrics.record(Metrics.Kind.FX_STALL, delay, 0, 0);
+                    event.commit();
+                }
+            });
+        }
+    }
+}
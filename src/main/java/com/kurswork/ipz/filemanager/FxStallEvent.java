@@ -0,0 +1,15 @@
+package com.kurswork.ipz.filemanager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kurswork.ipz.filemanager.FxStall")
+@Label("FX Thread Stall")
+@Description("The FX thread ran a posted task this long after it was posted")
+@Category("File Manager")
+@StackTrace(false)
+public class FxStallEvent extends jdk.jfr.Event {
+}
@@ -0,0 +1,30 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.application.Platform;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces updates posted from worker threads, so a burst of results costs one Platform.runLater instead of one each.
+ */
+public class FxUpdates {
+    private final Queue<Runnable> updates = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public void post(Runnable update) {
+        updates.add(update);
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        Runnable update;
+        while ((update = updates.poll()) != null) {
+            update.run();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content hashes from earlier duplicate searches, kept in one file between sessions. A hash is trusted only
+ * while the file keeps the size and modification time it had when it was hashed.
+ */
+public class HashCache {
+    private static final int MAGIC = 0x49505a48;
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean loaded;
+    private boolean dirty;
+
+    private record Entry(long size, long modified, byte[] partial, byte[] full) {
+    }
+
+    public HashCache(Path file) {
+        this.file = file;
+    }
+
+    public synchronized byte[] getPartial(Path path, long size, long modified) {
+        Entry entry = getEntry(path, size, modified);
+        return entry != null ? entry.partial() : null;
+    }
+
+    public synchronized byte[] getFull(Path path, long size, long modified) {
+        Entry entry = getEntry(path, size, modified);
+        return entry != null ? entry.full() : null;
+    }
+
+    public synchronized void putPartial(Path path, long size, long modified, byte[] partial) {
+        Entry entry = getEntry(path, size, modified);
+        entries.put(path.toString(), new Entry(size, modified, partial, entry != null ? entry.full() : null));
+        dirty = true;
+    }
+
+    public synchronized void putFull(Path path, long size, long modified, byte[] full) {
+        Entry entry = getEntry(path, size, modified);
+        entries.put(path.toString(), new Entry(size, modified, entry != null ? entry.partial() : null, full));
+        dirty = true;
+    }
+
+    /**
+     * Forgets files under the root that are not among the given paths, so deleted and renamed files do not
+     * pile up across runs.
+     */
+    public synchronized void retain(Path root, Set<String> paths) {
+        String prefix = root.toString().endsWith(root.getFileSystem().getSeparator())
+                ? root.toString() : root + root.getFileSystem().getSeparator();
+        dirty |= entries.keySet().removeIf(path -> path.startsWith(prefix) && !paths.contains(path));
+    }
+
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                entries.put(path, new Entry(size, modified, readHash(in), readHash(in)));
+            }
+        } catch (IOException e) {
+            // A missing or damaged cache only means the files are hashed again.
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Path temp = Files.createTempFile(file.getParent(), "hashes", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().size());
+                    out.writeLong(entry.getValue().modified());
+                    writeHash(out, entry.getValue().partial());
+                    writeHash(out, entry.getValue().full());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Entry getEntry(Path path, long size, long modified) {
+        Entry entry = entries.get(path.toString());
+        return entry != null && entry.size() == size && entry.modified() == modified ? entry : null;
+    }
+
+    private static byte[] readHash(DataInputStream in) throws IOException {
+        int length = in.readUnsignedByte();
+        if (length == 0) {
+            return null;
+        }
+        byte[] hash = new byte[length];
+        in.readFully(hash);
+        return hash;
+    }
+
+    private static void writeHash(DataOutputStream out, byte[] hash) throws IOException {
+        out.writeByte(hash != null ? hash.length : 0);
+        if (hash != null) {
+            out.write(hash);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.scene.image.Image;
+
+import java.net.URL;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public final class IconCache {
+    private static final int MAX_ICONS = 128;
+    private static final String EXTENSION_ICON_PATH = "/icons/ext/%s.png";
+    private static final String MIME_ICON_PATH = "/icons/mime/%s.png";
+
+    private static final Map<FileInfo.FileType, Image> TYPE_ICONS = new EnumMap<>(FileInfo.FileType.class);
+    private static final Map<String, Image> ICONS = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > MAX_ICONS;
+        }
+    };
+
+    private IconCache() {
+    }
+
+    public static Image forFile(FileInfo fileInfo) {
+        if (fileInfo.getType() != FileInfo.FileType.FILE) {
+            return forType(fileInfo.getType());
+        }
+        String extension = getExtension(fileInfo.getFilename());
+        if (extension.isEmpty()) {
+            return forType(FileInfo.FileType.FILE);
+        }
+        String key = "ext:" + extension;
+        Image icon = ICONS.get(key);
+        if (icon == null) {
+            // Without a dedicated icon the extension table still gives the row its category icon, with no file I/O.
+            URL url = IconCache.class.getResource(String.format(EXTENSION_ICON_PATH, extension));
+            icon = url != null ? new Image(url.toExternalForm()) : forMime(ExtensionTypeDetector.lookup(fileInfo.getFilename()));
+            ICONS.put(key, icon);
+        }
+        return icon;
+    }
+
+    public static Image forMime(String mimeType) {
+        if (mimeType == null || mimeType.isEmpty()) {
+            return forType(FileInfo.FileType.FILE);
+        }
+        String category = mimeType.substring(0, mimeType.indexOf('/') < 0 ? mimeType.length() : mimeType.indexOf('/'));
+        return ICONS.computeIfAbsent("mime:" + category, key -> load(String.format(MIME_ICON_PATH, category)));
+    }
+
+    public static Image forType(FileInfo.FileType type) {
+        return TYPE_ICONS.computeIfAbsent(type, key -> new Image(key == FileInfo.FileType.DIRECTORY ? "/folder-icon.png" : "/file-icon.png"));
+    }
+
+    private static Image load(String resource) {
+        URL url = IconCache.class.getResource(resource);
+        return url != null ? new Image(url.toExternalForm()) : forType(FileInfo.FileType.FILE);
+    }
+
+    private static String getExtension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot <= 0 || dot == filename.length() - 1 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,107 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs blocking per-entry filesystem work on virtual threads. Each file store is a lane with its own
+ * concurrency limit, so a high-latency mount can keep many round-trips in flight without a local disk
+ * being flooded, and tasks beyond the limit wait in a queue instead of as parked threads.
+ */
+public class IoScheduler {
+    private static final int MAX_CACHED_DIRECTORIES = 4096;
+
+    private final int permitsPerStore;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fs-io-", 0).factory());
+    private final Map<Object, Lane> lanes = new ConcurrentHashMap<>();
+    // Resolving a file store reads the mount table, so the answer is remembered per directory.
+    private final Map<Path, Lane> directoryLanes = new ConcurrentHashMap<>();
+
+    public IoScheduler(int permitsPerStore) {
+        this.permitsPerStore = permitsPerStore;
+    }
+
+    public Lane laneFor(Path directory) {
+        Lane lane = directoryLanes.get(directory);
+        if (lane != null) {
+            return lane;
+        }
+        Object store;
+        try {
+            // Archives hand out a new store object per call, and are read from one file anyway.
+            store = directory.getFileSystem() != FileSystems.getDefault() ? directory.getFileSystem() : Files.getFileStore(directory);
+        } catch (IOException e) {
+            // An unreadable directory shares a lane with the rest of its file system.
+            store = directory.getFileSystem();
+        }
+        lane = lanes.computeIfAbsent(store, key -> new Lane());
+        if (directoryLanes.size() >= MAX_CACHED_DIRECTORIES) {
+            directoryLanes.clear();
+        }
+        directoryLanes.put(directory, lane);
+        return lane;
+    }
+
+    public <T> CompletableFuture<T> submit(Lane lane, IoTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        lane.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    @FunctionalInterface
+    public interface IoTask<T> {
+        T call() throws IOException;
+    }
+
+    public final class Lane {
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private int running;
+
+        private Lane() {
+        }
+
+        private void execute(Runnable task) {
+            synchronized (this) {
+                if (running >= permitsPerStore) {
+                    pending.add(task);
+                    return;
+                }
+                running++;
+            }
+            executor.execute(() -> drain(task));
+        }
+
+        private void drain(Runnable first) {
+            // A thread that finishes a task takes the next queued one, so at most permitsPerStore threads exist per lane.
+            Runnable task = first;
+            while (task != null) {
+                task.run();
+                synchronized (this) {
+                    task = pending.poll();
+                    if (task == null) {
+                        running--;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class JobBatch {
+    private final ConflictPolicy policy;
+    private final OperationProgress progress = new OperationProgress();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final Queue<Path> affectedPaths = new ConcurrentLinkedQueue<>();
+
+    public JobBatch(ConflictPolicy policy) {
+        this.policy = policy;
+    }
+
+    public ConflictPolicy getPolicy() {
+        return policy;
+    }
+
+    public OperationProgress getProgress() {
+        return progress;
+    }
+
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    public List<Path> getAffectedPaths() {
+        return new ArrayList<>(affectedPaths);
+    }
+
+    void addAffectedPath(Path path) {
+        affectedPaths.add(path);
+    }
+}
@@ -0,0 +1,98 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JobJournal {
+    private static final String ADD = "ADD";
+    private static final String DONE = "DONE";
+
+    private final Path file;
+    private BufferedWriter writer;
+    private long nextId;
+    private int pending;
+
+    public record Entry(long id, ConflictPolicy policy, FileJob job) {
+    }
+
+    public JobJournal(Path file) {
+        this.file = file;
+    }
+
+    public synchronized List<Entry> loadPending() throws IOException {
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                try {
+                    if (fields[0].equals(ADD) && fields.length == 6) {
+                        long id = Long.parseLong(fields[1]);
+                        entries.put(id, new Entry(id, ConflictPolicy.valueOf(fields[2]), FileJob.decode(fields, 3)));
+                        nextId = Math.max(nextId, id + 1);
+                    } else if (fields[0].equals(DONE) && fields.length == 2) {
+                        entries.remove(Long.parseLong(fields[1]));
+                    }
+                } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+                    // A torn last line from an interrupted write is ignored.
+                } catch (UncheckedIOException e) {
+                    // So is a job copying out of an archive that no longer opens.
+                }
+            }
+        }
+        closeWriter();
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            lines.add(format(entry));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        pending = entries.size();
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized Entry append(FileJob job, ConflictPolicy policy) throws IOException {
+        Entry entry = new Entry(nextId++, policy, job);
+        write(format(entry));
+        pending++;
+        return entry;
+    }
+
+    public synchronized void complete(Entry entry) throws IOException {
+        pending--;
+        if (pending == 0) {
+            closeWriter();
+            Files.write(file, new byte[0]);
+        } else {
+            write(DONE + "\t" + entry.id());
+        }
+    }
+
+    private String format(Entry entry) {
+        return ADD + "\t" + entry.id() + "\t" + entry.policy() + "\t" + entry.job().encode();
+    }
+
+    private void write(String line) throws IOException {
+        if (writer == null) {
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
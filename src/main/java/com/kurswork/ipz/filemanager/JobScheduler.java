@@ -0,0 +1,345 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class JobScheduler {
+    private static final int MAX_LINK_ATTEMPTS = 16;
+
+    private final CopyEngine copyEngine;
+    private final SyncEngine syncEngine;
+    private final PackEngine packEngine;
+    private final RecursiveDeleter deleter;
+    private final JobJournal journal;
+    private final int jobsPerDevice;
+    private final ExecutorService coordinatorPool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "file-job-coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService jobPool;
+    private final Map<FileStore, Semaphore> deviceLimits = new ConcurrentHashMap<>();
+    private volatile ConflictPolicy conflictPolicy = ConflictPolicy.OVERWRITE;
+    private volatile boolean trashMode;
+    private List<JobJournal.Entry> pending = List.of();
+
+    public JobScheduler(CopyEngine copyEngine, SyncEngine syncEngine, PackEngine packEngine, RecursiveDeleter deleter,
+                        JobJournal journal, int jobsPerDevice, int maxJobs) {
+        this.copyEngine = copyEngine;
+        this.syncEngine = syncEngine;
+        this.packEngine = packEngine;
+        this.deleter = deleter;
+        this.journal = journal;
+        this.jobsPerDevice = jobsPerDevice;
+        this.jobPool = Executors.newFixedThreadPool(maxJobs, runnable -> {
+            Thread thread = new Thread(runnable, "file-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ConflictPolicy getConflictPolicy() {
+        return conflictPolicy;
+    }
+
+    public void setConflictPolicy(ConflictPolicy conflictPolicy) {
+        this.conflictPolicy = conflictPolicy;
+    }
+
+    public boolean isTrashMode() {
+        return trashMode;
+    }
+
+    public void setTrashMode(boolean trashMode) {
+        this.trashMode = trashMode;
+    }
+
+    public JobBatch submit(List<FileJob> jobs) throws IOException {
+        ConflictPolicy policy = conflictPolicy;
+        List<JobJournal.Entry> entries = new ArrayList<>(jobs.size());
+        for (FileJob job : jobs) {
+            entries.add(journal.append(job, policy));
+        }
+        return start(policy, entries);
+    }
+
+    /**
+     * Reads the jobs a previous run left unfinished, to be resumed or discarded next.
+     */
+    public synchronized List<FileJob> loadPending() throws IOException {
+        pending = journal.loadPending();
+        return pending.stream().map(JobJournal.Entry::job).toList();
+    }
+
+    public synchronized JobBatch resumePending() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<JobJournal.Entry> entries = pending;
+        pending = List.of();
+        return start(entries.get(0).policy(), entries);
+    }
+
+    public synchronized void discardPending() throws IOException {
+        for (JobJournal.Entry entry : pending) {
+            journal.complete(entry);
+        }
+        pending = List.of();
+    }
+
+    private JobBatch start(ConflictPolicy policy, List<JobJournal.Entry> entries) {
+        // Archives a job reads from stay open until it is done, even if no panel shows them any more.
+        entries.forEach(entry -> holdArchives(entry.job(), true));
+        JobBatch batch = new JobBatch(policy);
+        coordinatorPool.execute(() -> runBatch(batch, entries));
+        return batch;
+    }
+
+    private void runBatch(JobBatch batch, List<JobJournal.Entry> entries) {
+        OperationProgress progress = batch.getProgress();
+        List<CompletableFuture<Void>> running = new ArrayList<>(entries.size());
+        for (JobJournal.Entry entry : entries) {
+            // Copies, syncs, packs and deletes count their own entries while walking the tree.
+            FileJob.Kind kind = entry.job().kind();
+            if (kind != FileJob.Kind.COPY && kind != FileJob.Kind.SYNC && kind != FileJob.Kind.PACK
+                    && kind != FileJob.Kind.DELETE && kind != FileJob.Kind.PURGE) {
+                progress.addTotal(1, 0);
+            }
+        }
+        for (JobJournal.Entry entry : entries) {
+            if (progress.isCancelled()) {
+                completeEntry(entry, progress);
+                continue;
+            }
+            List<Semaphore> permits = acquireDevices(entry);
+            running.add(CompletableFuture.runAsync(() -> {
+                try {
+                    progress.checkpoint();
+                    run(entry, batch);
+                } catch (CancellationException e) {
+                    // Cancelled jobs are dropped from the journal together with the rest of the batch.
+                } catch (CompletionException e) {
+                    if (!(e.getCause() instanceof CancellationException)) {
+                        progress.addFailure(getPath(entry.job()), e.getCause() instanceof Exception cause ? cause : e);
+                    }
+                } catch (IOException e) {
+                    progress.addFailure(getPath(entry.job()), e);
+                } finally {
+                    permits.forEach(Semaphore::release);
+                    completeEntry(entry, progress);
+                }
+            }, jobPool));
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+        progress.setTotalKnown();
+        if (progress.isCancelled()) {
+            batch.getCompletion().completeExceptionally(new CancellationException());
+        } else {
+            batch.getCompletion().complete(null);
+        }
+    }
+
+    private void run(JobJournal.Entry entry, JobBatch batch) throws IOException {
+        FileJob job = entry.job();
+        OperationProgress progress = batch.getProgress();
+        switch (job.kind()) {
+            case COPY -> {
+                Path target = entry.policy().resolve(job.target().resolve(job.source().getFileName().toString()));
+                if (target != null) {
+                    batch.addAffectedPath(target);
+                    copyEngine.copy(job.source(), target, progress).join();
+                }
+            }
+            case SYNC -> {
+                // Sync updates the target in place by design, so the conflict policy does not apply.
+                Path target = job.target().resolve(job.source().getFileName().toString());
+                batch.addAffectedPath(target);
+                syncEngine.sync(job.source(), target, progress).join();
+            }
+            case PACK -> {
+                Path target = entry.policy().resolve(job.target());
+                if (target != null) {
+                    batch.addAffectedPath(target);
+                    packEngine.pack(job.source(), target, progress).join();
+                }
+            }
+            case LINK -> {
+                // The duplicate is replaced by design, so the conflict policy does not apply.
+                batch.addAffectedPath(job.target());
+                link(job.source(), job.target());
+                progress.addDone(1, 0);
+            }
+            case MOVE -> {
+                Path target = entry.policy().resolve(job.target());
+                if (target != null) {
+                    batch.addAffectedPath(job.source());
+                    batch.addAffectedPath(target);
+                    move(job.source(), target, progress);
+                }
+                progress.addDone(1, 0);
+            }
+            case DELETE -> {
+                batch.addAffectedPath(job.source());
+                if (trashMode && moveToTrash(job.source(), progress)) {
+                    return;
+                }
+                deleter.delete(job.source(), progress);
+            }
+            case PURGE -> deleter.purge(job.source(), progress);
+            case CREATE_FILE, CREATE_DIRECTORY -> {
+                // An existing entry is never replaced by a new empty one, so only RENAME changes the outcome.
+                Path target = entry.policy() == ConflictPolicy.RENAME ? entry.policy().resolve(job.target()) : job.target();
+                if (!Files.exists(target)) {
+                    batch.addAffectedPath(target);
+                    if (job.kind() == FileJob.Kind.CREATE_FILE) {
+                        Files.createFile(target);
+                    } else {
+                        Files.createDirectory(target);
+                    }
+                }
+                progress.addDone(1, 0);
+            }
+        }
+    }
+
+    private void move(Path source, Path target, OperationProgress progress) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (DirectoryNotEmptyException e) {
+            if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                // The target is a non-empty directory; replacing it would merge into or discard what it holds.
+                throw new FileAlreadyExistsException(target.toString(), null, "Ціль є непорожньою папкою");
+            }
+            // A directory moving to another device is copied, and its source deleted only if every entry arrived.
+            // Failures of other jobs in the batch count too, which at worst leaves a fully copied source in place.
+            int failures = progress.getFailureCount();
+            copyEngine.copy(source, target, progress).join();
+            progress.checkpoint();
+            if (progress.getFailureCount() != failures) {
+                throw new IOException("Скопійовано не все, джерело залишено: " + source);
+            }
+            deleter.delete(source, progress);
+        }
+    }
+
+    private static void link(Path original, Path duplicate) throws IOException {
+        // The files may have changed since they were found, so they are compared once more before one is replaced.
+        if (Files.mismatch(original, duplicate) != -1) {
+            throw new IOException("Файли вже відрізняються: " + original + ", " + duplicate);
+        }
+        Path temp = createTemporaryLink(original, duplicate);
+        try {
+            Files.move(temp, duplicate, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Links the original under a fresh name next to the duplicate. Names already taken are skipped, never
+     * replaced, so only a link created here can be deleted afterwards.
+     */
+    private static Path createTemporaryLink(Path original, Path duplicate) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Path temp = duplicate.resolveSibling("." + duplicate.getFileName() + "."
+                    + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".link");
+            try {
+                return Files.createLink(temp, original);
+            } catch (FileAlreadyExistsException e) {
+                if (attempt >= MAX_LINK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean moveToTrash(Path source, OperationProgress progress) throws IOException {
+        Path trashed;
+        try {
+            trashed = deleter.moveToTrash(source);
+        } catch (IOException e) {
+            // Mount points and read-only parents cannot be renamed away; delete them in place instead.
+            return false;
+        }
+        progress.addTotal(1, 0);
+        progress.addDone(1, 0);
+        // The purge is journaled on its own so the batch finishes now and an interrupted purge resumes on restart.
+        submitPurge(trashed);
+        return true;
+    }
+
+    private void submitPurge(Path trashed) throws IOException {
+        start(ConflictPolicy.OVERWRITE, List.of(journal.append(FileJob.purge(trashed), ConflictPolicy.OVERWRITE)));
+    }
+
+    private List<Semaphore> acquireDevices(JobJournal.Entry entry) {
+        Map<String, FileStore> stores = new TreeMap<>();
+        addStore(stores, entry.job().device());
+        FileJob.Kind kind = entry.job().kind();
+        if (kind == FileJob.Kind.COPY || kind == FileJob.Kind.SYNC || kind == FileJob.Kind.PACK
+                || kind == FileJob.Kind.MOVE || kind == FileJob.Kind.LINK) {
+            addStore(stores, entry.job().target());
+        }
+        List<Semaphore> permits = new ArrayList<>(stores.size());
+        for (FileStore store : stores.values()) {
+            Semaphore limit = deviceLimits.computeIfAbsent(store, key -> new Semaphore(jobsPerDevice));
+            limit.acquireUninterruptibly();
+            permits.add(limit);
+        }
+        return permits;
+    }
+
+    private static void addStore(Map<String, FileStore> stores, Path path) {
+        // A job reading from an archive competes for the disk the archive file is on.
+        for (Path existing = ArchiveFileSystems.getHostPath(path); existing != null; existing = existing.getParent()) {
+            try {
+                FileStore store = Files.getFileStore(existing);
+                stores.put(store.toString(), store);
+                return;
+            } catch (IOException e) {
+                // Walk up until an existing ancestor identifies the device.
+            }
+        }
+    }
+
+    private static Path getPath(FileJob job) {
+        return job.source() != null ? job.source() : job.target();
+    }
+
+    private void completeEntry(JobJournal.Entry entry, OperationProgress progress) {
+        holdArchives(entry.job(), false);
+        try {
+            journal.complete(entry);
+        } catch (IOException e) {
+            progress.addFailure(entry.job().device(), e);
+        }
+    }
+
+    private static void holdArchives(FileJob job, boolean hold) {
+        for (Path path : new Path[]{job.source(), job.target()}) {
+            if (path != null && hold) {
+                ArchiveFileSystems.retain(path);
+            } else if (path != null) {
+                ArchiveFileSystems.release(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class LargeFileViewer {
+    private final Stage stage = new Stage();
+    private final MappedTextFile file;
+    private final LineList lines = new LineList();
+    private final ListView<String> listView = new ListView<>(lines);
+    private final Label statusLabel = new Label();
+    private final CheckBox followBox = new CheckBox("Стежити за кінцем");
+    private final Timeline timeline = new Timeline(new KeyFrame(Duration.millis(250), event -> update()));
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "text-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean indexing;
+    private volatile boolean indexedOnce;
+    private volatile boolean truncated;
+    private volatile boolean closed;
+    private volatile String error;
+
+    public LargeFileViewer(Path path) throws IOException {
+        this.file = new MappedTextFile(path);
+
+        listView.setStyle("-fx-font-family: monospace;");
+        VBox.setVgrow(listView, Priority.ALWAYS);
+
+        TextField lineField = new TextField();
+        lineField.setPromptText("Перейти до рядка");
+        lineField.setOnAction(event -> jumpToLine(lineField.getText()));
+        followBox.selectedProperty().addListener((observable, oldValue, newValue) -> update());
+
+        HBox controls = new HBox(10, lineField, followBox, statusLabel);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setPadding(new Insets(5));
+
+        stage.setTitle(path.getFileName() + " (тільки читання)");
+        stage.setScene(new Scene(new VBox(controls, listView), 800, 600));
+        stage.setOnHidden(event -> close());
+
+        timeline.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    public void show() {
+        update();
+        timeline.play();
+        stage.show();
+    }
+
+    private void update() {
+        if (truncated) {
+            truncated = false;
+            lines.reset();
+        }
+        lines.sync();
+        if (!indexing && (!indexedOnce || followBox.isSelected())) {
+            startIndexing();
+        }
+        if (followBox.isSelected() && !lines.isEmpty()) {
+            listView.scrollTo(lines.size() - 1);
+        }
+        String status = "Рядків: " + String.format("%,d", lines.size()) + ", "
+                + ProgressWindow.formatBytes(file.getIndexedLength());
+        if (error != null) {
+            status += " — " + error;
+        } else if (indexing && !indexedOnce) {
+            status += " (індексація...)";
+        }
+        statusLabel.setText(status);
+    }
+
+    private void startIndexing() {
+        indexing = true;
+        indexer.execute(() -> {
+            try {
+                if (!file.indexToEnd(() -> closed)) {
+                    truncated = true;
+                    file.indexToEnd(() -> closed);
+                }
+                error = null;
+            } catch (IOException e) {
+                error = e.getMessage();
+            } finally {
+                indexedOnce = true;
+                indexing = false;
+            }
+        });
+    }
+
+    private void jumpToLine(String text) {
+        try {
+            int line = Integer.parseInt(text.trim()) - 1;
+            if (line >= 0 && line < lines.size()) {
+                followBox.setSelected(false);
+                listView.scrollTo(line);
+                listView.getSelectionModel().select(line);
+            } else {
+                statusLabel.setText("Рядок " + (line + 1) + " ще не проіндексовано");
+            }
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Некоректний номер рядка");
+        }
+    }
+
+    private void close() {
+        closed = true;
+        timeline.stop();
+        // Closing on the indexer thread lets a running pass finish with the channel still open.
+        indexer.execute(() -> {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // Nothing is left to report to once the window is gone.
+            }
+        });
+        indexer.shutdown();
+    }
+
+    private class LineList extends ObservableListBase<String> {
+        private int size;
+
+        @Override
+        public String get(int index) {
+            try {
+                return file.readLine(index);
+            } catch (IOException e) {
+                return "";
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        void sync() {
+            int lineCount = (int) Math.min(Integer.MAX_VALUE, file.getLineCount());
+            if (lineCount <= size) {
+                return;
+            }
+            beginChange();
+            if (size > 0) {
+                // The previous last line may have been incomplete when it was first shown.
+                nextSet(size - 1, null);
+            }
+            nextAdd(size, lineCount);
+            size = lineCount;
+            endChange();
+        }
+
+        void reset() {
+            if (size == 0) {
+                return;
+            }
+            beginChange();
+            nextRemove(0, Collections.nCopies(size, ""));
+            size = 0;
+            endChange();
+        }
+    }
+}
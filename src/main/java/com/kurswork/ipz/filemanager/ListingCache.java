@@ -0,0 +1,298 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class ListingCache {
+    private final int maxDirectories;
+    private final int maxEntries;
+    private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Consumer<Path>> listeners = new CopyOnWriteArrayList<>();
+    private WatchService watchService;
+    private int cachedEntries;
+
+    private static class Entry {
+        private final WatchKey key;
+        private FileInfoColumns columns;
+        private final Set<String> pendingChanges = new HashSet<>();
+        // Stats in flight per file name, so a result that finishes after a newer one is dropped.
+        private final Map<String, Stat> stats = new HashMap<>();
+        private long lastSequence;
+
+        private Entry(WatchKey key) {
+            this.key = key;
+        }
+    }
+
+    private static class Stat {
+        private long latest;
+        private int running;
+    }
+
+    public ListingCache(int maxDirectories, int maxEntries) {
+        this.maxDirectories = maxDirectories;
+        this.maxEntries = maxEntries;
+    }
+
+    public void addListener(Consumer<Path> listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized FileInfoColumns get(Path directory) {
+        Entry entry = entries.get(directory);
+        return entry != null && entry.columns != null ? entry.columns.copy() : null;
+    }
+
+    public synchronized void watch(Path directory) {
+        if (entries.containsKey(directory) || directory.getFileSystem() != FileSystems.getDefault()) {
+            return;
+        }
+        try {
+            WatchKey key = directory.register(getWatchService(), StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            entries.put(directory, new Entry(key));
+            evict();
+        } catch (IOException | UnsupportedOperationException e) {
+            // Directories that cannot be watched are simply never cached.
+        }
+    }
+
+    public void put(Path directory, FileInfoColumns columns) {
+        Set<String> pending;
+        synchronized (this) {
+            Entry entry = entries.get(directory);
+            if (entry == null || columns.size() > maxEntries) {
+                invalidate(directory);
+                return;
+            }
+            if (entry.columns != null) {
+                cachedEntries -= entry.columns.size();
+            }
+            entry.columns = columns.copy();
+            cachedEntries += columns.size();
+            pending = new LinkedHashSet<>(entry.pendingChanges);
+            entry.pendingChanges.clear();
+            evict();
+        }
+        if (!pending.isEmpty()) {
+            applyChanges(directory, pending);
+        }
+    }
+
+    public synchronized void invalidate(Path directory) {
+        Entry entry = entries.remove(directory);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    public boolean update(Path file) {
+        return update(List.of(file));
+    }
+
+    /**
+     * Re-reads the given files into the cached listings of their directories and reports whether every one
+     * of them was cached. It stats each file, so callers on the FX thread should run it on a worker.
+     */
+    public boolean update(Collection<Path> files) {
+        Map<Path, Set<String>> changes = new HashMap<>();
+        for (Path file : files) {
+            Path normalized = file.toAbsolutePath().normalize();
+            if (normalized.getParent() != null) {
+                changes.computeIfAbsent(normalized.getParent(), directory -> new LinkedHashSet<>())
+                        .add(normalized.getFileName().toString());
+            }
+        }
+        boolean allCached = true;
+        for (Map.Entry<Path, Set<String>> change : changes.entrySet()) {
+            boolean changed = applyChanges(change.getKey(), change.getValue());
+            if (changed) {
+                notifyListeners(change.getKey());
+            }
+            allCached &= changed;
+        }
+        return allCached;
+    }
+
+    /**
+     * Stats the files without holding the lock, then applies the results to the directory's listing if it is
+     * still cached. Stats of one file may finish out of order, so only the most recently started one is applied.
+     * Returns false when there was no listing to update.
+     */
+    private boolean applyChanges(Path directory, Set<String> filenames) {
+        Entry started;
+        long sequence;
+        synchronized (this) {
+            started = entries.get(directory);
+            if (started == null) {
+                return false;
+            }
+            if (started.columns == null) {
+                started.pendingChanges.addAll(filenames);
+                return false;
+            }
+            sequence = ++started.lastSequence;
+            for (String filename : filenames) {
+                Stat stat = started.stats.computeIfAbsent(filename, name -> new Stat());
+                stat.latest = sequence;
+                stat.running++;
+            }
+        }
+        Map<String, FileInfo> fileInfos = new LinkedHashMap<>();
+        for (String filename : filenames) {
+            fileInfos.put(filename, FileInfo.of(directory.resolve(filename)));
+        }
+        synchronized (this) {
+            finishStats(started, sequence, fileInfos);
+            Entry entry = entries.get(directory);
+            if (entry == null) {
+                return false;
+            }
+            if (entry.columns == null) {
+                // Relisted meanwhile; the new listing takes the changes once it is stored.
+                entry.pendingChanges.addAll(filenames);
+                return false;
+            }
+            if (entry != started) {
+                // Watched again meanwhile; files the new entry is already re-reading are left to it.
+                fileInfos.keySet().removeIf(entry.stats::containsKey);
+            }
+            apply(entry, fileInfos);
+            return true;
+        }
+    }
+
+    /**
+     * Ends the given stats and drops the results that a more recently started stat of the same file supersedes.
+     */
+    private static void finishStats(Entry entry, long sequence, Map<String, FileInfo> fileInfos) {
+        Iterator<String> filenames = fileInfos.keySet().iterator();
+        while (filenames.hasNext()) {
+            String filename = filenames.next();
+            Stat stat = entry.stats.get(filename);
+            if (stat.latest != sequence) {
+                filenames.remove();
+            }
+            if (--stat.running == 0) {
+                entry.stats.remove(filename);
+            }
+        }
+    }
+
+    private void apply(Entry entry, Map<String, FileInfo> fileInfos) {
+        Map<String, Integer> indexes = entry.columns.indexesOf(fileInfos.keySet());
+        BitSet removed = new BitSet();
+        for (Map.Entry<String, FileInfo> change : fileInfos.entrySet()) {
+            String filename = change.getKey();
+            FileInfo fileInfo = change.getValue();
+            Integer index = indexes.get(filename);
+            if (fileInfo.getType() == FileInfo.FileType.UNKNOWN) {
+                if (index != null) {
+                    removed.set(index);
+                }
+            } else if (index != null) {
+                entry.columns.set(index, fileInfo);
+            } else {
+                entry.columns.add(fileInfo);
+                cachedEntries++;
+            }
+        }
+        if (!removed.isEmpty()) {
+            entry.columns.removeAll(removed);
+            cachedEntries -= removed.cardinality();
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && (entries.size() > maxDirectories || cachedEntries > maxEntries)) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            remove(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        entry.key.cancel();
+        if (entry.columns != null) {
+            cachedEntries -= entry.columns.size();
+        }
+    }
+
+    private WatchService getWatchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread watcher = new Thread(this::processEvents, "listing-cache-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        return watchService;
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            boolean current;
+            synchronized (this) {
+                Entry entry = entries.get(directory);
+                current = entry != null && entry.key == key;
+            }
+            List<WatchEvent<?>> events = key.pollEvents();
+            boolean changed = current && applyEvents(directory, events);
+            if (!key.reset()) {
+                synchronized (this) {
+                    Entry entry = entries.get(directory);
+                    if (entry != null && entry.key == key) {
+                        invalidate(directory);
+                        changed = true;
+                    }
+                }
+            }
+            if (changed) {
+                notifyListeners(directory);
+            }
+        }
+    }
+
+    private boolean applyEvents(Path directory, List<WatchEvent<?>> events) {
+        Set<String> filenames = new LinkedHashSet<>();
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                invalidate(directory);
+                return true;
+            }
+            filenames.add(event.context().toString());
+        }
+        return !filenames.isEmpty() && applyChanges(directory, filenames);
+    }
+
+    private void notifyListeners(Path directory) {
+        for (Consumer<Path> listener : listeners) {
+            listener.accept(directory);
+        }
+    }
+}
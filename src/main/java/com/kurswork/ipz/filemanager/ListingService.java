@@ -0,0 +1,236 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Directory listing without any UI: the watched listing cache and the recursive directory sizes it keeps
+ * up to date. Consumers are called on the listing thread; callers move results to their own thread.
+ */
+public class ListingService {
+    private static final int PROBE_ENTRIES = 64;
+    private static final long SLOW_STAT_NANOS = 200_000;
+    private static final int MAX_IN_FLIGHT = 256;
+    private static final int MAX_VISITED = 256;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "directory-listing");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final IoScheduler io;
+    private final ListingCache cache;
+    private final DirectorySizes directorySizes;
+    // Directories shown this session, most recent last; they are what the next snapshot keeps.
+    private final Map<Path, Boolean> visited = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+            return size() > MAX_VISITED;
+        }
+    };
+    private Path snapshotFile;
+    private volatile ListingSnapshot snapshot;
+
+    public ListingService(int ioPermitsPerStore, int maxCachedDirectories, int maxCachedEntries) {
+        this.io = new IoScheduler(ioPermitsPerStore);
+        this.cache = new ListingCache(maxCachedDirectories, maxCachedEntries);
+        this.directorySizes = new DirectorySizes(io);
+        cache.addListener(directorySizes::refresh);
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public IoScheduler getIoScheduler() {
+        return io;
+    }
+
+    public ListingCache getCache() {
+        return cache;
+    }
+
+    public DirectorySizes getDirectorySizes() {
+        return directorySizes;
+    }
+
+    public void loadSnapshot(Path file) {
+        snapshotFile = file;
+        snapshot = ListingSnapshot.load(file);
+    }
+
+    /**
+     * Returns the directory's listing as the last session saw it, or null, and seeds the directory totals
+     * saved with it. The caller is expected to show it and list the directory again in the background.
+     */
+    public FileInfoColumns getSnapshot(Path directory) {
+        ListingSnapshot.Directory saved = snapshot != null ? snapshot.get(directory) : null;
+        if (saved == null) {
+            return null;
+        }
+        FileInfoColumns columns = saved.columns();
+        long[] totals = saved.totals();
+        for (int i = 0; i < columns.size(); i++) {
+            if (totals[i] != FileInfo.DIRECTORY_SIZE && columns.getType(i) == FileInfo.FileType.DIRECTORY) {
+                directorySizes.seed(directory.resolve(columns.getFilename(i)), totals[i]);
+            }
+        }
+        return columns;
+    }
+
+    public void remember(Path directory) {
+        if (directory.getFileSystem() != FileSystems.getDefault()) {
+            // Paths inside archives do not survive a restart as plain paths.
+            return;
+        }
+        synchronized (visited) {
+            visited.put(directory, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Saves the most recently visited directories that are still cached, topped up with directories
+     * from the previous snapshot that were not visited this session.
+     */
+    public void saveSnapshot(int maxDirectories, int maxEntries) throws IOException {
+        if (snapshotFile == null) {
+            return;
+        }
+        List<Path> recent;
+        synchronized (visited) {
+            recent = new ArrayList<>(visited.keySet());
+        }
+        Collections.reverse(recent);
+        Map<Path, ListingSnapshot.Directory> saved = new LinkedHashMap<>();
+        for (Path directory : recent) {
+            FileInfoColumns columns = cache.get(directory);
+            if (columns != null && columns.size() <= maxEntries && saved.size() < maxDirectories) {
+                saved.put(directory, new ListingSnapshot.Directory(directory, columns, getTotals(directory, columns)));
+            }
+        }
+        ListingSnapshot previous = snapshot;
+        if (previous != null) {
+            for (Path directory : previous.getDirectories()) {
+                if (saved.size() >= maxDirectories) {
+                    break;
+                }
+                if (!saved.containsKey(directory) && !recent.contains(directory)) {
+                    ListingSnapshot.Directory old = previous.get(directory);
+                    if (old != null) {
+                        saved.put(directory, old);
+                    }
+                }
+            }
+        }
+        ListingSnapshot.save(snapshotFile, new ArrayList<>(saved.values()));
+    }
+
+    private long[] getTotals(Path directory, FileInfoColumns columns) {
+        long[] totals = new long[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            totals[i] = columns.getType(i) == FileInfo.FileType.DIRECTORY
+                    ? directorySizes.get(directory.resolve(columns.getFilename(i))) : FileInfo.DIRECTORY_SIZE;
+        }
+        return totals;
+    }
+
+    public void list(Path directory, BooleanSupplier cancelled, Consumer<FileInfo> entries) throws IOException {
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.LISTING, directory);
+        long count = 0;
+        long statNanos = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            Iterator<Path> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                // A local disk answers a stat in microseconds; only round-trip bound mounts are worth fanning out.
+                if (count == PROBE_ENTRIES && statNanos / count >= SLOW_STAT_NANOS) {
+                    count += listConcurrently(io.laneFor(directory), iterator, cancelled, entries);
+                    return;
+                }
+                Path entry = iterator.next();
+                long start = System.nanoTime();
+                FileInfo fileInfo = FileInfo.of(stream, entry);
+                long elapsed = System.nanoTime() - start;
+                Metrics.record(Metrics.Kind.FILE_INFO, elapsed, 1, 0);
+                statNanos += elapsed;
+                entries.accept(fileInfo);
+                count++;
+            }
+        } finally {
+            sample.stop(count, 0);
+        }
+    }
+
+    private int listConcurrently(IoScheduler.Lane lane, Iterator<Path> iterator, BooleanSupplier cancelled,
+                                 Consumer<FileInfo> entries) {
+        // Results are taken in directory order from a bounded window, so the consumer stays on this thread.
+        Deque<CompletableFuture<FileInfo>> window = new ArrayDeque<>();
+        int count = 0;
+        while (iterator.hasNext() || !window.isEmpty()) {
+            if (cancelled.getAsBoolean()) {
+                window.forEach(future -> future.cancel(false));
+                return count;
+            }
+            if (iterator.hasNext() && window.size() < MAX_IN_FLIGHT) {
+                Path entry = iterator.next();
+                window.add(io.submit(lane, () -> {
+                    long start = System.nanoTime();
+                    FileInfo fileInfo = FileInfo.of(entry);
+                    Metrics.record(Metrics.Kind.FILE_INFO, System.nanoTime() - start, 1, 0);
+                    return fileInfo;
+                }));
+            } else {
+                entries.accept(window.poll().join());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lists a directory on the listing threads, answering from the cache when it already holds the
+     * directory and caching the result otherwise. Cancelling the future stops the listing.
+     */
+    public CompletableFuture<FileInfoColumns> list(Path directory) {
+        Path dir = directory.toAbsolutePath().normalize();
+        FileInfoColumns cached = cache.get(dir);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        cache.watch(dir);
+        CompletableFuture<FileInfoColumns> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            FileInfoColumns columns = new FileInfoColumns();
+            try {
+                list(dir, future::isDone, columns::add);
+                if (!future.isDone()) {
+                    cache.put(dir, columns);
+                    future.complete(columns);
+                }
+            } catch (IOException | RuntimeException e) {
+                cache.invalidate(dir);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,148 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last-known listings of recently visited directories, kept in one binary file between sessions. The file is
+ * memory-mapped and only its directory headers are read at launch; a directory's columns are copied out
+ * when it is first shown.
+ */
+public class ListingSnapshot {
+    private static final int MAGIC = 0x49505a53;
+    private static final int VERSION = 1;
+
+    private final ByteBuffer buffer;
+    // Directory -> position of its record in the mapped file, in the order they were saved.
+    private final Map<Path, Integer> positions;
+
+    private ListingSnapshot(ByteBuffer buffer, Map<Path, Integer> positions) {
+        this.buffer = buffer;
+        this.positions = positions;
+    }
+
+    public record Directory(Path path, FileInfoColumns columns, long[] totals) {
+    }
+
+    /**
+     * Maps the snapshot file. A missing, foreign or damaged file gives an empty snapshot.
+     */
+    public static ListingSnapshot load(Path file) {
+        Path pending = pendingFile(file);
+        try {
+            // A save that could not replace the mapped file on Windows left its result next to it.
+            Files.move(pending, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Usually there is simply no pending file.
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ListingSnapshot(mapped, readIndex(mapped));
+        } catch (IOException | RuntimeException e) {
+            return empty();
+        }
+    }
+
+    private static ListingSnapshot empty() {
+        return new ListingSnapshot(ByteBuffer.allocate(0), Map.of());
+    }
+
+    private static Map<Path, Integer> readIndex(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return Map.of();
+        }
+        int count = buffer.getInt();
+        Map<Path, Integer> positions = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            Path path = Path.of(readString(buffer));
+            int length = buffer.getInt();
+            positions.put(path, buffer.position());
+            buffer.position(buffer.position() + length);
+        }
+        return positions;
+    }
+
+    public List<Path> getDirectories() {
+        return List.copyOf(positions.keySet());
+    }
+
+    public Directory get(Path directory) {
+        Integer position = positions.get(directory);
+        if (position == null) {
+            return null;
+        }
+        try {
+            ByteBuffer record = buffer.duplicate().position(position);
+            FileInfoColumns columns = FileInfoColumns.read(record);
+            long[] totals = new long[columns.size()];
+            record.asLongBuffer().get(totals);
+            return new Directory(directory, columns, totals);
+        } catch (RuntimeException e) {
+            // A damaged record only loses that directory's last-known listing.
+            return null;
+        }
+    }
+
+    public static void save(Path file, List<Directory> directories) throws IOException {
+        List<byte[]> paths = new ArrayList<>(directories.size());
+        int length = 12;
+        for (Directory directory : directories) {
+            byte[] path = directory.path().toString().getBytes(StandardCharsets.UTF_8);
+            paths.add(path);
+            length += 8 + path.length + directory.columns().byteSize() + directory.totals().length * 8;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(directories.size());
+        for (int i = 0; i < directories.size(); i++) {
+            Directory directory = directories.get(i);
+            buffer.putInt(paths.get(i).length).put(paths.get(i));
+            buffer.putInt(directory.columns().byteSize() + directory.totals().length * 8);
+            directory.columns().write(buffer);
+            buffer.asLongBuffer().put(directory.totals());
+            buffer.position(buffer.position() + directory.totals().length * 8);
+        }
+        buffer.flip();
+
+        Path temp = Files.createTempFile(file.getParent(), "listings", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // A mapped file cannot be replaced on Windows; the next launch picks this one up instead.
+                Files.move(temp, pendingFile(file), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Path pendingFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".new");
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupted snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,270 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.application.Platform;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Filters and sorts a panel's listing off the FX thread. The full listing is kept as the source; every
+ * change to it, to the filter or to the sort order produces a new set of columns that is published whole.
+ * Only one pass runs at a time, and changes made while it runs are folded into the next pass.
+ */
+public class ListingView {
+    public enum Key {
+        TYPE, NAME, SIZE, DATE
+    }
+
+    public record SortOrder(Key key, boolean ascending) {
+    }
+
+    private final Executor executor;
+    private final Supplier<ToLongFunction<String>> directorySizes;
+    private final Consumer<FileInfoColumns> publisher;
+    private final Consumer<List<FileInfo>> appender;
+
+    private FileInfoColumns source = new FileInfoColumns();
+    private int sourceVersion;
+    private FileQuery filter;
+    private List<SortOrder> sortOrders = List.of();
+
+    private FileInfoColumns published = source;
+    private int publishedVersion;
+    private FileQuery publishedFilter;
+    private List<SortOrder> publishedSortOrders = List.of();
+    private int generation;
+    private boolean running;
+    private boolean dirty;
+
+    /**
+     * @param directorySizes called on the FX thread when a pass starts; the function it returns runs on the
+     *                       worker, so it must not read state the FX thread may change meanwhile
+     */
+    public ListingView(Executor executor, Supplier<ToLongFunction<String>> directorySizes,
+                       Consumer<FileInfoColumns> publisher, Consumer<List<FileInfo>> appender) {
+        this.executor = executor;
+        this.directorySizes = directorySizes;
+        this.publisher = publisher;
+        this.appender = appender;
+    }
+
+    public FileInfoColumns getSource() {
+        return source;
+    }
+
+    public boolean isFiltered() {
+        return filter != null;
+    }
+
+    public void setSource(FileInfoColumns columns) {
+        source = columns;
+        sourceVersion++;
+        // A running pass over another listing must not be shown; appended rows only make a pass slightly stale.
+        generation++;
+        update();
+    }
+
+    public void append(List<FileInfo> batch) {
+        if (isIdentity() && published == source && publishedVersion == sourceVersion) {
+            // Unfiltered and unsorted rows stream straight into the shown list, which shares the source columns.
+            appender.accept(batch);
+            publishedVersion = ++sourceVersion;
+            return;
+        }
+        for (FileInfo fileInfo : batch) {
+            source.add(fileInfo);
+        }
+        sourceVersion++;
+        update();
+    }
+
+    public void setFilter(FileQuery filter) {
+        this.filter = filter;
+        generation++;
+        update();
+    }
+
+    public void setSortOrders(List<SortOrder> sortOrders) {
+        this.sortOrders = List.copyOf(sortOrders);
+        generation++;
+        update();
+    }
+
+    private boolean isIdentity() {
+        return filter == null && sortOrders.isEmpty();
+    }
+
+    private void update() {
+        if (isIdentity()) {
+            generation++;
+            if (published != source || publishedVersion != sourceVersion || publishedFilter != null || !publishedSortOrders.isEmpty()) {
+                publish(source, sourceVersion, null, List.of());
+            }
+            return;
+        }
+        if (running) {
+            dirty = true;
+            return;
+        }
+        running = true;
+        dirty = false;
+        int version = sourceVersion;
+        FileQuery query = filter;
+        List<SortOrder> orders = sortOrders;
+        // A longer plain filter over unchanged rows only has to look at what is already shown, which is sorted too.
+        boolean narrowing = query != null && publishedFilter != null && version == publishedVersion
+                && orders.equals(publishedSortOrders) && query.narrows(publishedFilter);
+        FileInfoColumns base = narrowing ? published : source.copy();
+        ToLongFunction<String> directorySize = directorySizes.get();
+        int passGeneration = ++generation;
+        executor.execute(() -> {
+            FileInfoColumns result = null;
+            try {
+                result = compute(base, query, narrowing ? List.of() : orders, directorySize);
+            } finally {
+                FileInfoColumns columns = result;
+                Platform.runLater(() -> {
+                    running = false;
+                    if (columns != null && passGeneration == generation) {
+                        publish(columns, version, query, orders);
+                    }
+                    if (dirty) {
+                        update();
+                    }
+                });
+            }
+        });
+    }
+
+    private void publish(FileInfoColumns columns, int version, FileQuery query, List<SortOrder> orders) {
+        published = columns;
+        publishedVersion = version;
+        publishedFilter = query;
+        publishedSortOrders = orders;
+        publisher.accept(columns);
+    }
+
+    private static FileInfoColumns compute(FileInfoColumns base, FileQuery query, List<SortOrder> orders,
+                                           ToLongFunction<String> directorySize) {
+        int[] indexes = new int[base.size()];
+        int count = 0;
+        for (int i = 0; i < base.size(); i++) {
+            if (query == null || query.matches(base.getFilename(i))) {
+                indexes[count++] = i;
+            }
+        }
+        if (!orders.isEmpty()) {
+            // Keys are extracted only for the rows that passed the filter; positions into them are sorted.
+            int[] positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = i;
+            }
+            mergeSort(positions, new int[count], 0, count, createComparator(base, indexes, count, orders, directorySize));
+            int[] sorted = new int[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = indexes[positions[i]];
+            }
+            indexes = sorted;
+        }
+        return base.select(indexes, count);
+    }
+
+    private static IndexComparator createComparator(FileInfoColumns base, int[] indexes, int count, List<SortOrder> orders,
+                                                    ToLongFunction<String> directorySize) {
+        List<IndexComparator> comparators = new ArrayList<>(orders.size());
+        for (SortOrder order : orders) {
+            IndexComparator comparator = switch (order.key()) {
+                case TYPE -> compareLongs(extract(indexes, count, i -> base.getType(i).ordinal()));
+                case SIZE -> compareLongs(extract(indexes, count, i -> base.getType(i) == FileInfo.FileType.DIRECTORY
+                        ? directorySize.applyAsLong(base.getFilename(i)) : base.getSize(i)));
+                case DATE -> compareLongs(extract(indexes, count, base::getLastModified));
+                case NAME -> {
+                    // Collation keys are built once per row, and only for rows an earlier key could not order.
+                    Collator collator = Collator.getInstance();
+                    CollationKey[] keys = new CollationKey[count];
+                    yield (a, b) -> {
+                        if (keys[a] == null) {
+                            keys[a] = collator.getCollationKey(base.getFilename(indexes[a]));
+                        }
+                        if (keys[b] == null) {
+                            keys[b] = collator.getCollationKey(base.getFilename(indexes[b]));
+                        }
+                        return keys[a].compareTo(keys[b]);
+                    };
+                }
+            };
+            comparators.add(order.ascending() ? comparator : (a, b) -> comparator.compare(b, a));
+        }
+        return (a, b) -> {
+            for (IndexComparator comparator : comparators) {
+                int result = comparator.compare(a, b);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static long[] extract(int[] indexes, int count, IndexKey key) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = key.get(indexes[i]);
+        }
+        return keys;
+    }
+
+    private static IndexComparator compareLongs(long[] keys) {
+        return (a, b) -> Long.compare(keys[a], keys[b]);
+    }
+
+    /**
+     * Stable merge sort of row indexes, so rows with equal keys keep their listing order.
+     */
+    private static void mergeSort(int[] indexes, int[] buffer, int from, int to, IndexComparator comparator) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int index = indexes[i];
+                int j = i;
+                while (j > from && comparator.compare(indexes[j - 1], index) > 0) {
+                    indexes[j] = indexes[j - 1];
+                    j--;
+                }
+                indexes[j] = index;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(indexes, buffer, from, middle, comparator);
+        mergeSort(indexes, buffer, middle, to, comparator);
+        if (comparator.compare(indexes[middle - 1], indexes[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(indexes, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                indexes[i] = buffer[left++];
+            } else {
+                indexes[i] = buffer[right++];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    @FunctionalInterface
+    private interface IndexKey {
+        long get(int index);
+    }
+}
@@ -0,0 +1,88 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MagicTypeDetector implements TypeDetector {
+    private static final int SNIFF_SIZE = 512;
+
+    private static final Signature[] SIGNATURES = {
+            new Signature(0, "image/png", 0x89, 'P', 'N', 'G'),
+            new Signature(0, "image/jpeg", 0xFF, 0xD8, 0xFF),
+            new Signature(0, "image/gif", 'G', 'I', 'F', '8'),
+            new Signature(0, "image/bmp", 'B', 'M'),
+            new Signature(0, "application/pdf", '%', 'P', 'D', 'F'),
+            new Signature(0, "application/zip", 'P', 'K', 3, 4),
+            new Signature(0, "application/gzip", 0x1F, 0x8B),
+            new Signature(0, "application/x-executable", 0x7F, 'E', 'L', 'F'),
+            new Signature(0, "video/x-matroska", 0x1A, 0x45, 0xDF, 0xA3),
+            new Signature(0, "video/x-flv", 'F', 'L', 'V'),
+            new Signature(0, "audio/mpeg", 'I', 'D', '3'),
+            new Signature(0, "audio/ogg", 'O', 'g', 'g', 'S'),
+            new Signature(4, "video/mp4", 'f', 't', 'y', 'p'),
+            new Signature(8, "image/webp", 'W', 'E', 'B', 'P'),
+            new Signature(8, "video/x-msvideo", 'A', 'V', 'I', ' '),
+            new Signature(8, "audio/wav", 'W', 'A', 'V', 'E'),
+            new Signature(257, "application/x-tar", 'u', 's', 't', 'a', 'r'),
+    };
+
+    @Override
+    public String detect(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNIFF_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading until the sniff window is full or the file ends.
+            }
+        }
+        buffer.flip();
+        for (Signature signature : SIGNATURES) {
+            if (signature.matches(buffer)) {
+                return signature.mimeType();
+            }
+        }
+        return looksLikeText(buffer) ? "text/plain" : null;
+    }
+
+    private static boolean looksLikeText(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == 0 || (b > 0 && b < 0x20 && b != '\n' && b != '\r' && b != '\t' && b != '\f' && b != 0x1B)) {
+                return false;
+            }
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // The window may cut a multi-byte character in half, so a malformed tail of up to three bytes is allowed.
+        for (int cut = 0; cut <= Math.min(3, buffer.limit()); cut++) {
+            try {
+                decoder.reset().decode(buffer.duplicate().limit(buffer.limit() - cut));
+                return true;
+            } catch (CharacterCodingException e) {
+                // Try again without the possibly truncated last character.
+            }
+        }
+        return false;
+    }
+
+    private record Signature(int offset, String mimeType, int... bytes) {
+        boolean matches(ByteBuffer buffer) {
+            if (buffer.limit() < offset + bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if ((buffer.get(offset + i) & 0xFF) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -17,6 +17,11 @@ public class Main extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        PanelController.saveSnapshot();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
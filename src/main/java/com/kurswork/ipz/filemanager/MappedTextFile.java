@@ -0,0 +1,220 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+public class MappedTextFile implements Closeable {
+    private static final long WINDOW_SIZE = 32 * 1024 * 1024L;
+    private static final int MAX_WINDOWS = 4;
+    private static final int INDEX_CHUNK = 1024 * 1024;
+    private static final int CHECKPOINT_STRIDE = 256;
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+
+    private final FileChannel channel;
+    private final Map<Long, MappedByteBuffer> windows = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+            return size() > MAX_WINDOWS;
+        }
+    };
+
+    // Offsets of every CHECKPOINT_STRIDE-th line; the lines in between are found by scanning forward.
+    private long[] checkpoints = new long[1024];
+    private int checkpointCount = 1;
+    private long lineBreaks;
+    private long lastLineStart;
+    private long indexedLength;
+    private long cursorLine;
+    private long cursorOffset;
+
+    public MappedTextFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    public long length() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Scans the bytes appended since the previous call for line breaks. Returns false when the file
+     * shrank, in which case the index was reset and the caller has to re-read every line.
+     */
+    public boolean indexToEnd(BooleanSupplier cancelled) throws IOException {
+        long length = channel.size();
+        if (length < getIndexedLength()) {
+            reset();
+            return false;
+        }
+        long position = getIndexedLength();
+        long breaks = getLineBreaks();
+        long lineStart = getLastLineStart();
+        long[] pending = new long[64];
+        int pendingCount = 0;
+        while (position < length && !cancelled.getAsBoolean()) {
+            long chunkEnd = Math.min(length, position + INDEX_CHUNK);
+            while (position < chunkEnd) {
+                MappedByteBuffer window = window(position);
+                long base = position - position % WINDOW_SIZE;
+                int end = (int) Math.min(window.limit(), chunkEnd - base);
+                for (int i = (int) (position - base); i < end; i++) {
+                    if (window.get(i) == '\n') {
+                        breaks++;
+                        lineStart = base + i + 1;
+                        if (breaks % CHECKPOINT_STRIDE == 0) {
+                            if (pendingCount == pending.length) {
+                                pending = Arrays.copyOf(pending, pendingCount * 2);
+                            }
+                            pending[pendingCount++] = lineStart;
+                        }
+                    }
+                }
+                position = base + end;
+            }
+            publish(pending, pendingCount, breaks, lineStart, position);
+            pendingCount = 0;
+        }
+        return true;
+    }
+
+    public synchronized long getLineCount() {
+        return lineBreaks + (indexedLength > lastLineStart ? 1 : 0);
+    }
+
+    public synchronized long getIndexedLength() {
+        return indexedLength;
+    }
+
+    public synchronized String readLine(long line) throws IOException {
+        long start = findLineStart(line);
+        long limit = Math.min(indexedLength, start + MAX_LINE_BYTES);
+        long end = indexOf(start, limit);
+        boolean truncated = end < 0 && limit < indexedLength;
+        if (end < 0) {
+            end = limit;
+        }
+        byte[] bytes = read(start, (int) (end - start));
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        return truncated ? text + "…" : text;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            windows.clear();
+        }
+        channel.close();
+    }
+
+    private synchronized long getLineBreaks() {
+        return lineBreaks;
+    }
+
+    private synchronized long getLastLineStart() {
+        return lastLineStart;
+    }
+
+    private synchronized void publish(long[] pending, int pendingCount, long breaks, long lineStart, long position) {
+        if (checkpointCount + pendingCount > checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, Math.max(checkpoints.length * 2, checkpointCount + pendingCount));
+        }
+        System.arraycopy(pending, 0, checkpoints, checkpointCount, pendingCount);
+        checkpointCount += pendingCount;
+        lineBreaks = breaks;
+        lastLineStart = lineStart;
+        indexedLength = position;
+    }
+
+    private synchronized void reset() {
+        checkpoints = new long[1024];
+        checkpointCount = 1;
+        lineBreaks = 0;
+        lastLineStart = 0;
+        indexedLength = 0;
+        cursorLine = 0;
+        cursorOffset = 0;
+        windows.clear();
+    }
+
+    private long findLineStart(long line) throws IOException {
+        long checkpoint = Math.min(line / CHECKPOINT_STRIDE, checkpointCount - 1);
+        long current;
+        long offset;
+        // Visible rows are read in order, so continuing from the previous line is usually a single scan.
+        if (cursorLine <= line && cursorLine / CHECKPOINT_STRIDE == checkpoint) {
+            current = cursorLine;
+            offset = cursorOffset;
+        } else {
+            current = checkpoint * CHECKPOINT_STRIDE;
+            offset = checkpoints[(int) checkpoint];
+        }
+        while (current < line) {
+            long end = indexOf(offset, indexedLength);
+            if (end < 0) {
+                break;
+            }
+            offset = end + 1;
+            current++;
+        }
+        cursorLine = current;
+        cursorOffset = offset;
+        return offset;
+    }
+
+    private long indexOf(long from, long to) throws IOException {
+        long position = from;
+        while (position < to) {
+            MappedByteBuffer window = window(position);
+            long base = position - position % WINDOW_SIZE;
+            int end = (int) Math.min(window.limit(), to - base);
+            for (int i = (int) (position - base); i < end; i++) {
+                if (window.get(i) == '\n') {
+                    return base + i;
+                }
+            }
+            position = base + end;
+        }
+        return -1;
+    }
+
+    private byte[] read(long from, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = from + copied;
+            MappedByteBuffer window = window(position);
+            int offset = (int) (position % WINDOW_SIZE);
+            int count = Math.min(length - copied, window.limit() - offset);
+            window.get(offset, bytes, copied, count);
+            copied += count;
+        }
+        return bytes;
+    }
+
+    private synchronized MappedByteBuffer window(long position) throws IOException {
+        long base = position - position % WINDOW_SIZE;
+        MappedByteBuffer window = windows.get(base);
+        // The last window is remapped once the file has grown past its end, e.g. while following a log.
+        if (window == null || position - base >= window.limit()) {
+            long size = Math.min(WINDOW_SIZE, channel.size() - base);
+            if (size <= position - base) {
+                throw new IOException("Файл змінився під час читання");
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, base, size);
+            windows.put(base, window);
+        }
+        return window;
+    }
+}
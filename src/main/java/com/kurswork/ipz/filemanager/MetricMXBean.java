@@ -0,0 +1,28 @@
+package com.kurswork.ipz.filemanager;
+
+/**
+ * One measured operation as seen over JMX, under {@code com.kurswork.ipz.filemanager:type=Metrics}.
+ */
+public interface MetricMXBean {
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    long getItems();
+
+    long getBytes();
+
+    double getItemsPerSecond();
+
+    double getBytesPerSecond();
+
+    void reset();
+}
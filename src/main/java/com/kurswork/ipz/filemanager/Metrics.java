@@ -0,0 +1,174 @@
+package com.kurswork.ipz.filemanager;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings of the hot paths, kept per operation kind. Every kind is a JMX MXBean; whole operations are also
+ * JFR events, while per-entry timings such as stat calls only feed the histograms.
+ */
+public final class Metrics {
+    public enum Kind {
+        LISTING("Лістинг"),
+        FILE_INFO("Читання атрибутів"),
+        NAME_SEARCH("Пошук за назвою"),
+        CONTENT_SEARCH("Пошук у вмісті"),
+        DUPLICATE_SEARCH("Пошук дублікатів"),
+        COPY("Копіювання"),
+        SYNC("Синхронізація"),
+        PACK("Пакування"),
+        DELETE("Видалення"),
+        MOVE("Переміщення"),
+        FX_STALL("Блокування FX-потоку");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Map<Kind, Metric> METRICS = new EnumMap<>(Kind.class);
+
+    static {
+        for (Kind kind : Kind.values()) {
+            Metric metric = new Metric();
+            METRICS.put(kind, metric);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metric,
+                        new ObjectName("com.kurswork.ipz.filemanager:type=Metrics,name=" + kind.name()));
+            } catch (JMException e) {
+                // Without JMX the numbers are still shown in the stats window.
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static Metric get(Kind kind) {
+        return METRICS.get(kind);
+    }
+
+    public static void record(Kind kind, long nanos, long items, long bytes) {
+        METRICS.get(kind).record(nanos, items, bytes);
+    }
+
+    public static Sample start(Kind kind, Object subject) {
+        return new Sample(kind, subject);
+    }
+
+    public static void reset() {
+        METRICS.values().forEach(Metric::reset);
+    }
+
+    /**
+     * One running operation; stopping it records its latency and commits its JFR event.
+     */
+    public static final class Sample {
+        private final Kind kind;
+        private final OperationEvent event = new OperationEvent();
+        private final long startNanos = System.nanoTime();
+
+        private Sample(Kind kind, Object subject) {
+            this.kind = kind;
+            if (event.isEnabled()) {
+                event.operation = kind.name();
+                event.path = String.valueOf(subject);
+                event.begin();
+            }
+        }
+
+        public void stop(long items, long bytes) {
+            record(kind, System.nanoTime() - startNanos, items, bytes);
+            if (event.isEnabled()) {
+                event.items = items;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    public static final class Metric implements MetricMXBean {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Metric() {
+        }
+
+        private void record(long nanos, long itemCount, long byteCount) {
+            latency.record(nanos);
+            items.add(itemCount);
+            bytes.add(byteCount);
+        }
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.getMeanMillis();
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.getPercentileMillis(50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return latency.getPercentileMillis(95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.getPercentileMillis(99);
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.getMaxMillis();
+        }
+
+        @Override
+        public long getItems() {
+            return items.sum();
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        // Rates are over the time spent inside the operation, so idle time between operations does not dilute them.
+        @Override
+        public double getItemsPerSecond() {
+            long nanos = latency.getTotalNanos();
+            return nanos == 0 ? 0 : items.sum() * 1e9 / nanos;
+        }
+
+        @Override
+        public double getBytesPerSecond() {
+            long nanos = latency.getTotalNanos();
+            return nanos == 0 ? 0 : bytes.sum() * 1e9 / nanos;
+        }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            items.reset();
+            bytes.reset();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.kurswork.ipz.filemanager;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kurswork.ipz.filemanager.Operation")
+@Label("File Manager Operation")
+@Category("File Manager")
+@StackTrace(false)
+public class OperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Items")
+    long items;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,149 @@
+package com.kurswork.ipz.filemanager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OperationProgress {
+    private final AtomicLong itemsDone = new AtomicLong();
+    private final AtomicLong itemsTotal = new AtomicLong();
+    private final AtomicLong bytesDone = new AtomicLong();
+    private final AtomicLong bytesTotal = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean totalKnown;
+    private volatile boolean cancelled;
+    private volatile boolean paused;
+    private long pausedNanos;
+    private long pauseStart;
+
+    public void addTotal(long items, long bytes) {
+        itemsTotal.addAndGet(items);
+        bytesTotal.addAndGet(bytes);
+    }
+
+    public void setTotalKnown() {
+        totalKnown = true;
+    }
+
+    public void addDone(long items, long bytes) {
+        itemsDone.addAndGet(items);
+        bytesDone.addAndGet(bytes);
+    }
+
+    /**
+     * Counts bytes actually written, for operations such as sync that process more bytes than they write.
+     */
+    public void addWritten(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public void addFailure(Path path, Exception e) {
+        failures.add(path + ": " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+    }
+
+    public long getItemsDone() {
+        return itemsDone.get();
+    }
+
+    public long getItemsTotal() {
+        return itemsTotal.get();
+    }
+
+    public long getBytesDone() {
+        return bytesDone.get();
+    }
+
+    public long getBytesTotal() {
+        return bytesTotal.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public boolean isTotalKnown() {
+        return totalKnown;
+    }
+
+    public List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public int getFailureCount() {
+        return failures.size();
+    }
+
+    public double getBytesPerSecond() {
+        double seconds = getActiveNanos() / 1e9;
+        return seconds > 0 ? bytesDone.get() / seconds : 0;
+    }
+
+    public long getEtaSeconds() {
+        double rate = getBytesPerSecond();
+        if (!totalKnown || rate <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil((bytesTotal.get() - bytesDone.get()) / rate);
+    }
+
+    public synchronized void pause() {
+        if (!paused) {
+            paused = true;
+            pauseStart = System.nanoTime();
+        }
+    }
+
+    public synchronized void resume() {
+        if (paused) {
+            paused = false;
+            pausedNanos += System.nanoTime() - pauseStart;
+            notifyAll();
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        resume();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void checkpoint() {
+        if (paused) {
+            synchronized (this) {
+                while (paused && !cancelled) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancelled = true;
+                    }
+                }
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    private synchronized long getActiveNanos() {
+        long now = System.nanoTime();
+        return now - startNanos - pausedNanos - (paused ? now - pauseStart : 0);
+    }
+}
@@ -0,0 +1,152 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File operations without any UI. Each call journals its jobs and returns the running batch; its completion
+ * future finishes once every job is done, and failures are collected in its progress rather than thrown.
+ */
+public class OperationService {
+    private final JobScheduler scheduler;
+
+    public OperationService(int workers, Path journal, int jobsPerDevice, int maxJobs) {
+        RecursiveDeleter deleter = new RecursiveDeleter(new IoScheduler(workers), AppData.resolve("trash"));
+        this.scheduler = new JobScheduler(new CopyEngine(workers), new SyncEngine(workers), new PackEngine(workers),
+                deleter, new JobJournal(journal), jobsPerDevice, maxJobs);
+    }
+
+    public ConflictPolicy getConflictPolicy() {
+        return scheduler.getConflictPolicy();
+    }
+
+    public void setConflictPolicy(ConflictPolicy conflictPolicy) {
+        scheduler.setConflictPolicy(conflictPolicy);
+    }
+
+    public boolean isTrashMode() {
+        return scheduler.isTrashMode();
+    }
+
+    public void setTrashMode(boolean trashMode) {
+        scheduler.setTrashMode(trashMode);
+    }
+
+    public JobBatch copy(List<Path> sources, Path targetDirectory) throws IOException {
+        checkWritable(List.of(targetDirectory));
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.COPY, targetDirectory);
+        return measure(sample, scheduler.submit(sources.stream().map(source -> FileJob.copy(source, targetDirectory)).toList()));
+    }
+
+    /**
+     * Brings {@code targetDirectory/<name>} up to date with each source, writing only the blocks that differ.
+     */
+    public JobBatch sync(List<Path> sources, Path targetDirectory) throws IOException {
+        checkWritable(List.of(targetDirectory));
+        for (Path source : sources) {
+            if (ArchiveFileSystems.isInArchive(source)) {
+                throw new IOException("Синхронізація з архіву не підтримується, скопіюйте файли: " + source);
+            }
+        }
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.SYNC, targetDirectory);
+        return measure(sample, scheduler.submit(sources.stream().map(source -> FileJob.sync(source, targetDirectory)).toList()));
+    }
+
+    /**
+     * Packs each source into {@code targetDirectory/<name>} plus the format's extension.
+     */
+    public JobBatch pack(List<Path> sources, Path targetDirectory, PackEngine.Format format) throws IOException {
+        checkWritable(List.of(targetDirectory));
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.PACK, targetDirectory);
+        return measure(sample, scheduler.submit(sources.stream()
+                .map(source -> FileJob.pack(source, targetDirectory.resolve(source.getFileName() + format.getExtension())))
+                .toList()));
+    }
+
+    public JobBatch delete(List<Path> paths) throws IOException {
+        checkWritable(paths);
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.DELETE, paths.size() == 1 ? paths.get(0) : paths.size() + " paths");
+        return measure(sample, scheduler.submit(paths.stream().map(FileJob::delete).toList()));
+    }
+
+    /**
+     * Moves each source to the target path paired with it.
+     */
+    public JobBatch move(List<Path> sources, List<Path> targets) throws IOException {
+        if (sources.size() != targets.size()) {
+            throw new IllegalArgumentException("Every source needs a target");
+        }
+        checkWritable(sources);
+        checkWritable(targets);
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.MOVE, targets.isEmpty() ? "" : targets.get(0).getParent());
+        List<FileJob> jobs = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            jobs.add(FileJob.move(sources.get(i), targets.get(i)));
+        }
+        return measure(sample, scheduler.submit(jobs));
+    }
+
+    /**
+     * Replaces each duplicate with a hard link to the original paired with it, once their contents still match.
+     */
+    public JobBatch link(List<Path> originals, List<Path> duplicates) throws IOException {
+        if (originals.size() != duplicates.size()) {
+            throw new IllegalArgumentException("Every duplicate needs an original");
+        }
+        checkWritable(duplicates);
+        List<FileJob> jobs = new ArrayList<>(duplicates.size());
+        for (int i = 0; i < duplicates.size(); i++) {
+            jobs.add(FileJob.link(originals.get(i), duplicates.get(i)));
+        }
+        return scheduler.submit(jobs);
+    }
+
+    public JobBatch createFile(Path path) throws IOException {
+        checkWritable(List.of(path));
+        return scheduler.submit(List.of(FileJob.createFile(path)));
+    }
+
+    public JobBatch createDirectory(Path path) throws IOException {
+        checkWritable(List.of(path));
+        return scheduler.submit(List.of(FileJob.createDirectory(path)));
+    }
+
+    /**
+     * Lists the jobs a previous run left unfinished. Until they are resumed or discarded they stay journaled,
+     * and the next launch offers them again.
+     */
+    public List<FileJob> loadPending() throws IOException {
+        return scheduler.loadPending();
+    }
+
+    /**
+     * Restarts the loaded pending jobs, or returns null when there are none.
+     */
+    public JobBatch resumePending() {
+        return scheduler.resumePending();
+    }
+
+    public void discardPending() throws IOException {
+        scheduler.discardPending();
+    }
+
+    /**
+     * Archives are opened read-only; writes into them are refused before anything is journaled.
+     */
+    private static void checkWritable(List<Path> paths) throws IOException {
+        for (Path path : paths) {
+            if (ArchiveFileSystems.isInArchive(path)) {
+                throw new AccessDeniedException(ArchiveFileSystems.getDisplayName(path), null, "Архів відкрито лише для читання");
+            }
+        }
+    }
+
+    private static JobBatch measure(Metrics.Sample sample, JobBatch batch) {
+        OperationProgress progress = batch.getProgress();
+        batch.getCompletion().whenComplete((result, error) -> sample.stop(progress.getItemsDone(), progress.getBytesDone()));
+        return batch;
+    }
+}
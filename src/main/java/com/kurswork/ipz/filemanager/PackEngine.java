@@ -0,0 +1,740 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Packs a file or directory tree into a ZIP or tar.gz archive. The uncompressed stream is cut into chunks
+ * that are deflated on all worker threads at once, each primed with the end of the chunk before it, and
+ * written in order as one ordinary deflate stream, the way pigz does it. A bounded window of direct
+ * buffers keeps memory flat however large the tree is.
+ */
+public class PackEngine {
+    static final int CHUNK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int OUTPUT_SIZE = CHUNK_SIZE + CHUNK_SIZE / 8 + 64;
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+
+    public enum Format {
+        ZIP("ZIP", ".zip"), TAR_GZ("tar.gz", ".tar.gz");
+
+        private final String title;
+        private final String extension;
+
+        Format(String title, String extension) {
+            this.title = title;
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(Path archive) {
+            return archive.getFileName().toString().endsWith(ZIP.extension) ? ZIP : TAR_GZ;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private final int workers;
+    private final ExecutorService workerPool;
+    private final ExecutorService coordinatorPool;
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    public PackEngine(int workers) {
+        this.workers = workers;
+        this.workerPool = Executors.newFixedThreadPool(workers, daemonThreads("pack-worker"));
+        this.coordinatorPool = Executors.newCachedThreadPool(daemonThreads("pack-coordinator"));
+    }
+
+    /**
+     * Packs the source into the archive, in the format its extension names. The archive is written next to
+     * its final name and only moved there once complete.
+     */
+    public CompletableFuture<Void> pack(Path source, Path archive, OperationProgress progress) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                packTree(source, archive, progress);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, coordinatorPool);
+    }
+
+    private void packTree(Path source, Path archive, OperationProgress progress) throws IOException {
+        Path temp = archive.resolveSibling(archive.getFileName() + ".part");
+        boolean complete = false;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Pipeline pipeline = new Pipeline(out, progress);
+            ArchiveWriter writer = Format.of(archive) == Format.ZIP ? new ZipWriter(pipeline) : new TarGzWriter(pipeline);
+            walk(source, temp, writer, progress);
+            writer.finish();
+            pipeline.drain();
+            complete = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        try {
+            Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void walk(Path source, Path temp, ArchiveWriter writer, OperationProgress progress) throws IOException {
+        Path base = source.getParent();
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                progress.checkpoint();
+                progress.addTotal(1, 0);
+                writer.addDirectory(getEntryName(base, dir), attrs, getMode(dir, attrs));
+                progress.addDone(1, 0);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                progress.checkpoint();
+                if (file.equals(temp)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                progress.addTotal(1, attrs.isRegularFile() ? attrs.size() : 0);
+                try {
+                    String name = getEntryName(base, file);
+                    if (attrs.isSymbolicLink()) {
+                        writer.addLink(name, attrs, Files.readSymbolicLink(file).toString());
+                    } else if (attrs.isRegularFile()) {
+                        try (SeekableByteChannel in = Files.newByteChannel(file, StandardOpenOption.READ)) {
+                            writer.addFile(name, attrs, getMode(file, attrs), in);
+                        }
+                    } else {
+                        throw new IOException("Пристрої та канали не пакуються: " + file);
+                    }
+                    progress.addDone(1, 0);
+                } catch (IOException e) {
+                    progress.addFailure(file, e);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                progress.addFailure(file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        progress.setTotalKnown();
+    }
+
+    private static String getEntryName(Path base, Path path) {
+        Path relative = base != null ? base.relativize(path) : path;
+        List<String> names = new ArrayList<>(relative.getNameCount());
+        for (Path name : relative) {
+            names.add(name.toString());
+        }
+        return String.join("/", names);
+    }
+
+    private static int getMode(Path path, BasicFileAttributes attrs) {
+        try {
+            int mode = 0;
+            for (PosixFilePermission permission : Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS)) {
+                mode |= 0400 >> permission.ordinal();
+            }
+            return mode;
+        } catch (IOException | UnsupportedOperationException e) {
+            // File systems without POSIX permissions get the usual defaults.
+            return attrs.isDirectory() ? 0755 : 0644;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private interface ArchiveWriter {
+        void addDirectory(String name, BasicFileAttributes attrs, int mode) throws IOException;
+
+        void addFile(String name, BasicFileAttributes attrs, int mode, ReadableByteChannel in) throws IOException;
+
+        void addLink(String name, BasicFileAttributes attrs, String target) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * Something to write at its turn in the archive. Its contents are asked for only when everything before
+     * it has been written, so headers can record the offsets and sizes that precede them.
+     */
+    private interface Output {
+        ByteBuffer get();
+
+        default void release(ByteBuffer buffer) {
+        }
+    }
+
+    private record StreamEnd(long crc, long size) {
+    }
+
+    /**
+     * Orders raw output and deflated chunks into the archive file. At most {@code workers * 2} items are
+     * pending at once; the caller writes the oldest before adding more.
+     */
+    private final class Pipeline {
+        private final FileChannel out;
+        private final OperationProgress progress;
+        private final int maxInFlight = workers * 2;
+        private final BlockingQueue<ByteBuffer> inputs = new ArrayBlockingQueue<>(maxInFlight + 1);
+        private final BlockingQueue<ByteBuffer> outputs = new ArrayBlockingQueue<>(maxInFlight);
+        private final Deque<Output> window = new ArrayDeque<>();
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer current;
+        private byte[] dictionary;
+        private long streamSize;
+        private long written;
+
+        private Pipeline(FileChannel out, OperationProgress progress) {
+            this.out = out;
+            this.progress = progress;
+            // A pending item holds at most one output, a running chunk one input, and the chunk being filled one more.
+            for (int i = 0; i < maxInFlight; i++) {
+                inputs.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+                outputs.add(ByteBuffer.allocateDirect(OUTPUT_SIZE));
+            }
+            inputs.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+        }
+
+        long written() {
+            return written;
+        }
+
+        void add(Output output) throws IOException {
+            makeRoom();
+            window.add(output);
+        }
+
+        void addRaw(ByteBuffer buffer) throws IOException {
+            add(() -> buffer);
+        }
+
+        void put(byte[] data) throws IOException {
+            for (int offset = 0; offset < data.length; ) {
+                ByteBuffer buffer = current();
+                int length = Math.min(buffer.remaining(), data.length - offset);
+                buffer.put(data, offset, length);
+                offset += length;
+                if (!buffer.hasRemaining()) {
+                    submit(false);
+                }
+            }
+        }
+
+        /**
+         * Reads up to {@code max} bytes from the channel straight into chunk buffers; returns how many it read.
+         */
+        long transfer(ReadableByteChannel in, long max) throws IOException {
+            long total = 0;
+            while (total < max) {
+                progress.checkpoint();
+                ByteBuffer buffer = current();
+                int limit = buffer.limit();
+                buffer.limit((int) Math.min(limit, buffer.position() + (max - total)));
+                int read = in.read(buffer);
+                buffer.limit(limit);
+                if (read < 0) {
+                    break;
+                }
+                total += read;
+                progress.addDone(0, read);
+                if (!buffer.hasRemaining()) {
+                    submit(false);
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Ends the current deflate stream and returns the checksum and length of what went into it.
+         */
+        StreamEnd endStream() throws IOException {
+            submit(true);
+            StreamEnd end = new StreamEnd(crc.getValue(), streamSize);
+            crc.reset();
+            streamSize = 0;
+            dictionary = null;
+            return end;
+        }
+
+        void drain() throws IOException {
+            while (!window.isEmpty()) {
+                writeNext();
+            }
+            out.force(false);
+        }
+
+        private ByteBuffer current() throws IOException {
+            if (current == null) {
+                current = take(inputs);
+            }
+            return current;
+        }
+
+        private void submit(boolean last) throws IOException {
+            ByteBuffer input = current();
+            current = null;
+            input.flip();
+            crc.update(input.duplicate());
+            streamSize += input.remaining();
+            byte[] previous = dictionary;
+            if (!last) {
+                // Back-references into the previous chunk stay valid, so chunking costs almost no ratio.
+                dictionary = new byte[Math.min(DICTIONARY_SIZE, input.remaining())];
+                input.get(input.limit() - dictionary.length, dictionary);
+            }
+            // Room is made before the chunk starts, so every running chunk finds a free output buffer.
+            makeRoom();
+            CompletableFuture<ByteBuffer> chunk = CompletableFuture.supplyAsync(() -> deflate(input, previous, last), workerPool);
+            add(new Output() {
+                @Override
+                public ByteBuffer get() {
+                    return chunk.join();
+                }
+
+                @Override
+                public void release(ByteBuffer buffer) {
+                    if (buffer.isDirect()) {
+                        outputs.add(buffer.clear());
+                    }
+                }
+            });
+        }
+
+        private ByteBuffer deflate(ByteBuffer input, byte[] dictionary, boolean last) {
+            Deflater deflater = deflaters.get();
+            deflater.reset();
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input);
+            if (last) {
+                deflater.finish();
+            }
+            ByteBuffer output = outputs.poll();
+            while (true) {
+                int room = output.remaining();
+                // A sync flush ends the chunk on a byte boundary, so the next chunk's output can simply follow it.
+                int length = deflater.deflate(output, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                if (last ? deflater.finished() : length < room) {
+                    break;
+                }
+                if (!output.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(output.capacity() * 2);
+                    larger.put(output.flip());
+                    if (output.isDirect()) {
+                        outputs.add(output.clear());
+                    }
+                    output = larger;
+                }
+            }
+            inputs.add(input.clear());
+            return output.flip();
+        }
+
+        private void makeRoom() throws IOException {
+            while (window.size() >= maxInFlight) {
+                writeNext();
+            }
+        }
+
+        private void writeNext() throws IOException {
+            Output output = window.poll();
+            ByteBuffer buffer;
+            try {
+                buffer = output.get();
+            } catch (CompletionException | UncheckedIOException e) {
+                if (e.getCause() instanceof IOException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+            int length = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            written += length;
+            progress.addWritten(length);
+            output.release(buffer);
+        }
+
+        private ByteBuffer take(BlockingQueue<ByteBuffer> queue) throws IOException {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private static final class TarGzWriter implements ArchiveWriter {
+        private static final int BLOCK = 512;
+        private static final long MAX_OCTAL_SIZE = 077777777777L;
+        private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 3};
+
+        private final Pipeline pipeline;
+
+        private TarGzWriter(Pipeline pipeline) throws IOException {
+            this.pipeline = pipeline;
+            pipeline.addRaw(ByteBuffer.wrap(GZIP_HEADER));
+        }
+
+        @Override
+        public void addDirectory(String name, BasicFileAttributes attrs, int mode) throws IOException {
+            putHeader(name + "/", '5', 0, attrs.lastModifiedTime(), mode, "");
+        }
+
+        @Override
+        public void addFile(String name, BasicFileAttributes attrs, int mode, ReadableByteChannel in) throws IOException {
+            long size = attrs.size();
+            putHeader(name, '0', size, attrs.lastModifiedTime(), mode, "");
+            IOException failure = null;
+            long copied = 0;
+            try {
+                copied = pipeline.transfer(in, size);
+            } catch (IOException e) {
+                failure = e;
+            }
+            // The header already promised this many bytes; a file that shrank is padded so the archive stays readable.
+            putZeros(size - copied + padding(size));
+            if (failure != null) {
+                throw failure;
+            }
+            if (copied < size) {
+                throw new IOException("Файл зменшився під час пакування: " + name);
+            }
+        }
+
+        @Override
+        public void addLink(String name, BasicFileAttributes attrs, String target) throws IOException {
+            putHeader(name, '2', 0, attrs.lastModifiedTime(), 0777, target);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            putZeros(2 * BLOCK);
+            StreamEnd end = pipeline.endStream();
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) end.crc()).putInt((int) end.size());
+            pipeline.addRaw(trailer.flip());
+        }
+
+        private void putHeader(String name, char type, long size, FileTime modified, int mode, String link) throws IOException {
+            byte[] nameBytes = utf8(name);
+            byte[] linkBytes = utf8(link);
+            if (nameBytes.length > 100 || linkBytes.length > 100 || size > MAX_OCTAL_SIZE) {
+                // Long names and huge sizes go into a pax header that applies to the entry after it.
+                StringBuilder records = new StringBuilder();
+                if (nameBytes.length > 100) {
+                    records.append(paxRecord("path", name));
+                }
+                if (linkBytes.length > 100) {
+                    records.append(paxRecord("linkpath", link));
+                }
+                if (size > MAX_OCTAL_SIZE) {
+                    records.append(paxRecord("size", Long.toString(size)));
+                }
+                byte[] body = utf8(records.toString());
+                pipeline.put(header(utf8("PaxHeaders/" + getShortName(name)), 'x', body.length, modified, 0644, new byte[0]));
+                pipeline.put(body);
+                putZeros(padding(body.length));
+            }
+            pipeline.put(header(nameBytes, type, size > MAX_OCTAL_SIZE ? 0 : size, modified, mode, linkBytes));
+        }
+
+        private static String getShortName(String name) {
+            String shortName = name.substring(name.lastIndexOf('/', name.length() - 2) + 1);
+            byte[] bytes = utf8(shortName);
+            return bytes.length <= 80 ? shortName : "entry";
+        }
+
+        private static byte[] header(byte[] name, char type, long size, FileTime modified, int mode, byte[] link) {
+            byte[] header = new byte[BLOCK];
+            System.arraycopy(name, 0, header, 0, Math.min(name.length, 100));
+            putOctal(header, 100, 8, mode);
+            putOctal(header, 108, 8, 0);
+            putOctal(header, 116, 8, 0);
+            putOctal(header, 124, 12, size);
+            putOctal(header, 136, 12, Math.max(0, modified.toMillis() / 1000));
+            header[156] = (byte) type;
+            System.arraycopy(link, 0, header, 157, Math.min(link.length, 100));
+            System.arraycopy(utf8("ustar\u000000"), 0, header, 257, 8);
+            for (int i = 148; i < 156; i++) {
+                header[i] = ' ';
+            }
+            long checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xff;
+            }
+            putOctal(header, 148, 7, checksum);
+            return header;
+        }
+
+        private static void putOctal(byte[] header, int offset, int length, long value) {
+            String digits = Long.toOctalString(value);
+            int padding = length - 1 - digits.length();
+            for (int i = 0; i < length - 1; i++) {
+                header[offset + i] = (byte) (i < padding ? '0' : digits.charAt(i - padding));
+            }
+            header[offset + length - 1] = 0;
+        }
+
+        private static String paxRecord(String key, String value) {
+            int length = utf8(key).length + utf8(value).length + 3;
+            int total = length + Integer.toString(length).length();
+            if (Integer.toString(total).length() != Integer.toString(length).length()) {
+                total++;
+            }
+            return total + " " + key + "=" + value + "\n";
+        }
+
+        private static long padding(long size) {
+            return (BLOCK - size % BLOCK) % BLOCK;
+        }
+
+        private void putZeros(long count) throws IOException {
+            byte[] zeros = new byte[(int) Math.min(count, CHUNK_SIZE)];
+            for (long left = count; left > 0; left -= zeros.length) {
+                pipeline.put(left >= zeros.length ? zeros : new byte[(int) left]);
+            }
+        }
+    }
+
+    private static final class ZipWriter implements ArchiveWriter {
+        private static final int LOCAL_HEADER = 0x04034b50;
+        private static final int DATA_DESCRIPTOR = 0x08074b50;
+        private static final int CENTRAL_HEADER = 0x02014b50;
+        private static final int ZIP64_END = 0x06064b50;
+        private static final int ZIP64_LOCATOR = 0x07064b50;
+        private static final int END = 0x06054b50;
+        private static final int UTF8_NAMES = 0x0800;
+        private static final int HAS_DESCRIPTOR = 0x0008;
+        private static final int UNIX = 3 << 8;
+
+        private final Pipeline pipeline;
+        private final List<Entry> entries = new ArrayList<>();
+
+        private static final class Entry {
+            private final byte[] name;
+            private final int dosTime;
+            private final boolean directory;
+            private final boolean zip64;
+            private final int attributes;
+            private long crc;
+            private long size;
+            private long compressed;
+            private long offset;
+
+            private Entry(String name, FileTime modified, boolean directory, boolean zip64, int attributes) {
+                this.name = utf8(name);
+                this.dosTime = toDosTime(modified);
+                this.directory = directory;
+                this.zip64 = zip64;
+                this.attributes = attributes;
+            }
+
+            int version() {
+                return zip64 ? 45 : 20;
+            }
+
+            int flags() {
+                return directory ? UTF8_NAMES : UTF8_NAMES | HAS_DESCRIPTOR;
+            }
+
+            int method() {
+                return directory ? 0 : 8;
+            }
+
+            int headerLength() {
+                return 30 + name.length + (zip64 ? 20 : 0);
+            }
+        }
+
+        private ZipWriter(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public void addDirectory(String name, BasicFileAttributes attrs, int mode) throws IOException {
+            Entry entry = new Entry(name + "/", attrs.lastModifiedTime(), true, false, (040000 | mode) << 16 | 0x10);
+            entries.add(entry);
+            pipeline.add(() -> localHeader(entry));
+        }
+
+        @Override
+        public void addFile(String name, BasicFileAttributes attrs, int mode, ReadableByteChannel in) throws IOException {
+            // Sizes are only known once the data is through, so the local header leaves them to a data descriptor.
+            Entry entry = new Entry(name, attrs.lastModifiedTime(), false, attrs.size() >= ZIP32_LIMIT, (0100000 | mode) << 16);
+            entries.add(entry);
+            pipeline.add(() -> localHeader(entry));
+            IOException failure = null;
+            try {
+                pipeline.transfer(in, Long.MAX_VALUE);
+            } catch (IOException e) {
+                failure = e;
+            }
+            StreamEnd end = pipeline.endStream();
+            entry.crc = end.crc();
+            entry.size = end.size();
+            pipeline.add(() -> dataDescriptor(entry));
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public void addLink(String name, BasicFileAttributes attrs, String target) throws IOException {
+            // Info-ZIP stores a link as an entry holding its target, marked by the file type in the attributes.
+            Entry entry = new Entry(name, attrs.lastModifiedTime(), false, false, (0120000 | 0777) << 16);
+            entries.add(entry);
+            pipeline.add(() -> localHeader(entry));
+            pipeline.put(utf8(target));
+            StreamEnd end = pipeline.endStream();
+            entry.crc = end.crc();
+            entry.size = end.size();
+            pipeline.add(() -> dataDescriptor(entry));
+        }
+
+        @Override
+        public void finish() throws IOException {
+            pipeline.add(this::centralDirectory);
+        }
+
+        private ByteBuffer localHeader(Entry entry) {
+            entry.offset = pipeline.written();
+            ByteBuffer header = ByteBuffer.allocate(entry.headerLength()).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(LOCAL_HEADER).putShort((short) entry.version()).putShort((short) entry.flags())
+                    .putShort((short) entry.method()).putInt(entry.dosTime).putInt(0)
+                    .putInt(entry.zip64 ? (int) ZIP32_LIMIT : 0).putInt(entry.zip64 ? (int) ZIP32_LIMIT : 0)
+                    .putShort((short) entry.name.length).putShort((short) (entry.zip64 ? 20 : 0)).put(entry.name);
+            if (entry.zip64) {
+                header.putShort((short) 1).putShort((short) 16).putLong(0).putLong(0);
+            }
+            return header.flip();
+        }
+
+        private ByteBuffer dataDescriptor(Entry entry) {
+            entry.compressed = pipeline.written() - entry.offset - entry.headerLength();
+            if (!entry.zip64 && (entry.size >= ZIP32_LIMIT || entry.compressed >= ZIP32_LIMIT)) {
+                throw new UncheckedIOException(new IOException("Файл виріс понад 4 ГБ під час пакування: "
+                        + new String(entry.name, StandardCharsets.UTF_8)));
+            }
+            ByteBuffer descriptor = ByteBuffer.allocate(entry.zip64 ? 24 : 16).order(ByteOrder.LITTLE_ENDIAN);
+            descriptor.putInt(DATA_DESCRIPTOR).putInt((int) entry.crc);
+            if (entry.zip64) {
+                descriptor.putLong(entry.compressed).putLong(entry.size);
+            } else {
+                descriptor.putInt((int) entry.compressed).putInt((int) entry.size);
+            }
+            return descriptor.flip();
+        }
+
+        private ByteBuffer centralDirectory() {
+            long start = pipeline.written();
+            int length = 0;
+            for (Entry entry : entries) {
+                length += 46 + entry.name.length + 28;
+            }
+            ByteBuffer directory = ByteBuffer.allocate(length + 56 + 20 + 22).order(ByteOrder.LITTLE_ENDIAN);
+            for (Entry entry : entries) {
+                boolean bigSizes = entry.zip64 || entry.size >= ZIP32_LIMIT || entry.compressed >= ZIP32_LIMIT;
+                boolean bigOffset = entry.offset >= ZIP32_LIMIT;
+                int extra = (bigSizes ? 16 : 0) + (bigOffset ? 8 : 0);
+                directory.putInt(CENTRAL_HEADER).putShort((short) (UNIX | entry.version())).putShort((short) entry.version())
+                        .putShort((short) entry.flags()).putShort((short) entry.method()).putInt(entry.dosTime)
+                        .putInt((int) entry.crc)
+                        .putInt(bigSizes ? (int) ZIP32_LIMIT : (int) entry.compressed)
+                        .putInt(bigSizes ? (int) ZIP32_LIMIT : (int) entry.size)
+                        .putShort((short) entry.name.length).putShort((short) (extra > 0 ? extra + 4 : 0))
+                        .putShort((short) 0).putShort((short) 0).putShort((short) 0).putInt(entry.attributes)
+                        .putInt(bigOffset ? (int) ZIP32_LIMIT : (int) entry.offset).put(entry.name);
+                if (extra > 0) {
+                    directory.putShort((short) 1).putShort((short) extra);
+                    if (bigSizes) {
+                        directory.putLong(entry.size).putLong(entry.compressed);
+                    }
+                    if (bigOffset) {
+                        directory.putLong(entry.offset);
+                    }
+                }
+            }
+            long size = directory.position();
+            long count = entries.size();
+            if (count >= 0xFFFF || start >= ZIP32_LIMIT || size >= ZIP32_LIMIT) {
+                directory.putInt(ZIP64_END).putLong(44).putShort((short) (UNIX | 45)).putShort((short) 45)
+                        .putInt(0).putInt(0).putLong(count).putLong(count).putLong(size).putLong(start);
+                directory.putInt(ZIP64_LOCATOR).putInt(0).putLong(start + size).putInt(1);
+            }
+            directory.putInt(END).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) Math.min(count, 0xFFFF)).putShort((short) Math.min(count, 0xFFFF))
+                    .putInt((int) Math.min(size, ZIP32_LIMIT)).putInt((int) Math.min(start, ZIP32_LIMIT)).putShort((short) 0);
+            return directory.flip();
+        }
+
+        private static int toDosTime(FileTime time) {
+            LocalDateTime local = LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault());
+            if (local.getYear() < 1980) {
+                return (1 << 21) | (1 << 16);
+            }
+            return (local.getYear() - 1980) << 25 | local.getMonthValue() << 21 | local.getDayOfMonth() << 16
+                    | local.getHour() << 11 | local.getMinute() << 5 | local.getSecond() >> 1;
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package com.kurswork.ipz.filemanager;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
-import javafx.beans.property.SimpleObjectProperty;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
@@ -25,12 +24,41 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.regex.PatternSyntaxException;
 
 public class PanelController implements Initializable {
+    private static final int WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // Per file store; enough round-trips in flight to hide network latency, few enough not to thrash a local disk.
+    private static final int IO_PERMITS_PER_STORE = 32;
+    private static final ListingService LISTING = new ListingService(IO_PERMITS_PER_STORE, 64, 1_000_000);
+    private static final SearchService SEARCH = new SearchService(LISTING, WORKERS, AppData.resolve("hashes.cache"));
+    private static final ListingCache LISTING_CACHE = LISTING.getCache();
+    private static final DirectorySizes DIRECTORY_SIZES = LISTING.getDirectorySizes();
+    private static final FileTypes FILE_TYPES = FileTypes.createDefault();
+    private static final ThumbnailCache THUMBNAILS = new ThumbnailCache(AppData.resolve("thumbnails"), 2);
+    private static final int MAX_REPORTED_FAILURES = 10;
+    private static final int SNAPSHOT_DIRECTORIES = 64;
+    private static final int SNAPSHOT_ENTRIES = 50_000;
+    private static final long EDITABLE_TEXT_LIMIT = 8 * 1024 * 1024L;
+
+    static {
+        LISTING.loadSnapshot(AppData.resolve("listings.snapshot"));
+    }
+
     @FXML
     private TableView<FileInfo> filesTable;
 
@@ -43,65 +71,171 @@ public class PanelController implements Initializable {
     @FXML
     private TextField pathField;
 
+    @FXML
+    private CheckBox thumbnailsBox;
+
+    @FXML
+    private Label statusLabel;
+
+    @FXML
+    private ProgressIndicator listingIndicator;
+
+    @FXML
+    private TextField filterField;
+
     private Path currentPath;
 
+    private FileBatchTask listingTask;
+
+    private boolean searchActive;
+
+    private final Set<Path> changedDirectories = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean sizesChanged = new AtomicBoolean();
+
+    private OperationService operations;
+
+    private final FileInfoList fileList = new FileInfoList();
+
+    private final ListingView listingView = new ListingView(LISTING.getExecutor(),
+            this::getDirectorySizes, this::showColumns, fileList::addAll);
+
     public Path getCurrentPath() {
         return currentPath;
     }
 
+    private ToLongFunction<String> getDirectorySizes() {
+        // Captured when the sort starts, so navigating mid-sort cannot resolve names against another directory.
+        Path directory = currentPath;
+        return filename -> DIRECTORY_SIZES.get(directory.resolve(filename));
+    }
+
+    public void setOperationService(OperationService operations) {
+        this.operations = operations;
+    }
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         setupFileTable();
         setupDisksBox();
+        LISTING_CACHE.addListener(this::onDirectoryChanged);
+        DIRECTORY_SIZES.addListener(this::onDirectorySizeChanged);
         updateList(Paths.get("."));
         refreshFileList();
     }
 
     private void setupFileTable() {
-        TableColumn<FileInfo, ImageView> fileTypeColumn = createFileTypeColumn();
-        TableColumn<FileInfo, String> filenameColumn = createFilenameColumn();
-        TableColumn<FileInfo, Long> fileSizeColumn = createFileSizeColumn();
-        TableColumn<FileInfo, String> fileDateColumn = createFileDateColumn();
-
-        filesTable.getColumns().addAll(fileTypeColumn, filenameColumn, fileSizeColumn, fileDateColumn);
+        TableColumn<FileInfo, FileInfo> thumbnailColumn = createThumbnailColumn();
+        TableColumn<FileInfo, FileInfo> fileTypeColumn = createFileTypeColumn();
+        TableColumn<FileInfo, FileInfo> filenameColumn = createFilenameColumn();
+        TableColumn<FileInfo, FileInfo> fileSizeColumn = createFileSizeColumn();
+        TableColumn<FileInfo, FileInfo> fileDateColumn = createFileDateColumn();
+
+        filesTable.setItems(fileList);
+        filesTable.getColumns().addAll(thumbnailColumn, fileTypeColumn, filenameColumn, fileSizeColumn, fileDateColumn);
+        filesTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         filesTable.setRowFactory(this::createTableRow);
         filesTable.setOnMouseClicked(this::handleFileTableClick);
+        filesTable.setSortPolicy(table -> {
+            listingView.setSortOrders(getSortOrders());
+            return true;
+        });
+        filterField.textProperty().addListener((observable, oldText, text) -> applyFilter(text));
     }
 
-    private TableColumn<FileInfo, ImageView> createFileTypeColumn() {
-        TableColumn<FileInfo, ImageView> fileTypeColumn = new TableColumn<>();
-        fileTypeColumn.setCellValueFactory(param -> new SimpleObjectProperty<>(getImageView(param.getValue().getType())));
+    private List<ListingView.SortOrder> getSortOrders() {
+        List<ListingView.SortOrder> orders = new ArrayList<>();
+        for (TableColumn<FileInfo, ?> column : filesTable.getSortOrder()) {
+            if (column.getUserData() instanceof ListingView.Key key) {
+                orders.add(new ListingView.SortOrder(key, column.getSortType() == TableColumn.SortType.ASCENDING));
+            }
+        }
+        return orders;
+    }
+
+    private void applyFilter(String text) {
+        try {
+            listingView.setFilter(text.isBlank() ? null : FileQuery.parse(text.strip()));
+        } catch (PatternSyntaxException e) {
+            // Keep the previous filter while a regular expression is still being typed.
+        }
+    }
+
+    private TableColumn<FileInfo, FileInfo> createFileTypeColumn() {
+        TableColumn<FileInfo, FileInfo> fileTypeColumn = new TableColumn<>();
+        fileTypeColumn.setCellValueFactory(param -> param.getValue().asObservable());
+        fileTypeColumn.setCellFactory(column -> new TableCell<>() {
+            private final ImageView imageView = new ImageView();
+
+            @Override
+            protected void updateItem(FileInfo item, boolean empty) {
+                super.updateItem(item, empty);
+                imageView.setImage(empty || item == null ? null : IconCache.forFile(item));
+                setGraphic(empty || item == null ? null : imageView);
+            }
+        });
+        fileTypeColumn.setUserData(ListingView.Key.TYPE);
         fileTypeColumn.setPrefWidth(32);
         return fileTypeColumn;
     }
 
-    private TableColumn<FileInfo, String> createFilenameColumn() {
-        TableColumn<FileInfo, String> filenameColumn = new TableColumn<>("Назва");
-        filenameColumn.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getFilename()));
-        filenameColumn.setPrefWidth(300.0f);
-        return filenameColumn;
-    }
+    private TableColumn<FileInfo, FileInfo> createThumbnailColumn() {
+        TableColumn<FileInfo, FileInfo> thumbnailColumn = new TableColumn<>();
+        thumbnailColumn.setCellValueFactory(param -> param.getValue().asObservable());
+        // Cells exist only for visible rows, so scrolling cancels the requests of rows that left the viewport.
+        thumbnailColumn.setCellFactory(column -> new TableCell<>() {
+            private final ImageView imageView = new ImageView();
+            private ThumbnailCache.Request request;
 
-    private TableColumn<FileInfo, Long> createFileSizeColumn() {
-        TableColumn<FileInfo, Long> fileSizeColumn = new TableColumn<>("Розмір");
-        fileSizeColumn.setCellValueFactory(param -> new SimpleObjectProperty<>(param.getValue().getSize()));
-        fileSizeColumn.setCellFactory(column -> new TableCell<>() {
             @Override
-            protected void updateItem(Long item, boolean empty) {
+            protected void updateItem(FileInfo item, boolean empty) {
                 super.updateItem(item, empty);
-                setText(empty || item == null ? null : formatFileSize(item));
+                if (request != null) {
+                    request.cancel();
+                    request = null;
+                }
+                imageView.setImage(null);
+                if (!empty && item != null && ThumbnailCache.supports(item) && !ArchiveFileSystems.isInArchive(currentPath)) {
+                    request = THUMBNAILS.request(currentPath.resolve(item.getFilename()), item, imageView::setImage);
+                }
+                setGraphic(empty || item == null ? null : imageView);
             }
         });
-        fileSizeColumn.setPrefWidth(120);
-        return fileSizeColumn;
+        thumbnailColumn.setSortable(false);
+        thumbnailColumn.setPrefWidth(ThumbnailCache.SIZE + 8);
+        thumbnailColumn.visibleProperty().bind(thumbnailsBox.selectedProperty());
+        return thumbnailColumn;
+    }
+
+    private TableColumn<FileInfo, FileInfo> createFilenameColumn() {
+        return createTextColumn("Назва", 300.0f, FileInfo::getFilename, ListingView.Key.NAME);
     }
 
-    private TableColumn<FileInfo, String> createFileDateColumn() {
-        TableColumn<FileInfo, String> fileDateColumn = new TableColumn<>("Дата зміни");
+    private TableColumn<FileInfo, FileInfo> createFileSizeColumn() {
+        return createTextColumn("Розмір", 120, fileInfo -> formatFileSize(getSize(fileInfo)), ListingView.Key.SIZE);
+    }
+
+    private TableColumn<FileInfo, FileInfo> createFileDateColumn() {
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        fileDateColumn.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getLastModified().format(dtf)));
-        fileDateColumn.setPrefWidth(120);
-        return fileDateColumn;
+        return createTextColumn("Дата зміни", 120, fileInfo -> formatLastModified(fileInfo, dtf), ListingView.Key.DATE);
+    }
+
+    private TableColumn<FileInfo, FileInfo> createTextColumn(String title, double width,
+                                                             Function<FileInfo, String> formatter,
+                                                             ListingView.Key sortKey) {
+        TableColumn<FileInfo, FileInfo> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> param.getValue().asObservable());
+        column.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(FileInfo item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : formatter.apply(item));
+            }
+        });
+        // Sorting is done by ListingView on primitive keys, so the column only names its key.
+        column.setUserData(sortKey);
+        column.setPrefWidth(width);
+        return column;
     }
 
     private TableRow<FileInfo> createTableRow(TableView<FileInfo> tv) {
@@ -121,10 +255,13 @@ public class PanelController implements Initializable {
     }
 
     private void startDragAndDrop(TableRow<FileInfo> row) {
-        if (!row.isEmpty() && row.getItem() != null ) {
+        // Entries of a read-only archive cannot be moved, and their paths mean nothing outside this panel.
+        if (!row.isEmpty() && row.getItem() != null && !ArchiveFileSystems.isInArchive(currentPath)) {
+            List<String> filenames = row.isSelected() ? getSelectedFilenames(true) : List.of(row.getItem().getFilename());
             Dragboard db = row.startDragAndDrop(TransferMode.MOVE);
             ClipboardContent content = new ClipboardContent();
-            content.putString(row.getItem().getFilename());
+            content.putString(String.join("\n", filenames.stream()
+                    .map(filename -> currentPath.resolve(filename).toString()).toList()));
             db.setContent(content);
         }
     }
@@ -140,14 +277,19 @@ public class PanelController implements Initializable {
         Dragboard db = event.getDragboard();
         boolean success = false;
         if (db.hasString() && row.getItem() != null) {
-            Path srcPath = Paths.get(pathField.getText()).resolve(db.getString());
-            Path destPath = getDestinationPath(row, srcPath);
-            try {
-                Files.move(srcPath, destPath);
-                updateList(currentPath);
+            List<Path> sources = new ArrayList<>();
+            List<Path> targets = new ArrayList<>();
+            for (String source : db.getString().split("\n")) {
+                Path srcPath = Paths.get(source);
+                Path destPath = getDestinationPath(row, srcPath);
+                if (!destPath.equals(srcPath) && !destPath.startsWith(srcPath)) {
+                    sources.add(srcPath);
+                    targets.add(destPath);
+                }
+            }
+            if (!sources.isEmpty()) {
+                runOperation("Переміщення (" + sources.size() + ")", () -> operations.move(sources, targets), null);
                 success = true;
-            } catch (IOException e) {
-                showAlert(Alert.AlertType.ERROR, "Помилка переміщення файлу", "Не вдалося перемістити файл.");
             }
         }
         event.setDropCompleted(success);
@@ -155,76 +297,371 @@ public class PanelController implements Initializable {
     }
 
     private Path getDestinationPath(TableRow<FileInfo> row, Path srcPath) {
-        Path destPath = Paths.get(pathField.getText()).resolve(row.getItem().getFilename());
-        return Files.isDirectory(destPath) ? destPath.resolve(srcPath.getFileName()) : destPath;
+        Path destPath = currentPath.resolve(row.getItem().getFilename());
+        return Files.isDirectory(destPath) ? destPath.resolve(srcPath.getFileName().toString())
+                : currentPath.resolve(srcPath.getFileName().toString());
     }
 
     private void handleFileDoubleClick() {
-        Path path = Paths.get(pathField.getText()).resolve(filesTable.getSelectionModel().getSelectedItem().getFilename());
+        Path path = currentPath.resolve(filesTable.getSelectionModel().getSelectedItem().getFilename());
         if (Files.isDirectory(path)) {
             updateList(path);
+        } else if (ArchiveFileSystems.isArchive(path)) {
+            openArchive(path);
+        } else if (ArchiveFileSystems.isInArchive(path)) {
+            openArchiveEntry(path);
         } else {
             openFile(path);
         }
     }
 
+    private void openArchive(Path archive) {
+        cancelListing();
+        listingIndicator.setVisible(true);
+        statusLabel.setText("Відкриття архіву...");
+        // Opening reads the archive's index, which for a compressed TAR means decompressing all of it.
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return ArchiveFileSystems.open(archive);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, LISTING.getExecutor()).whenComplete((root, error) -> Platform.runLater(() -> {
+            listingIndicator.setVisible(false);
+            statusLabel.setText(getCountText());
+            if (error != null) {
+                showAlert(Alert.AlertType.ERROR, "Помилка архіву", "Не вдалося відкрити архів " + archive.getFileName() + ".");
+            } else if (currentPath.equals(archive.getParent())) {
+                updateList(root);
+            }
+        }));
+    }
+
+    /**
+     * Copies a single entry out to a temporary directory and opens the copy, leaving the rest of the archive alone.
+     */
+    private void openArchiveEntry(Path entry) {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                Path directory = Files.createTempDirectory("ipz-archive");
+                Path copy = Files.copy(entry, directory.resolve(entry.getFileName().toString()));
+                copy.toFile().deleteOnExit();
+                directory.toFile().deleteOnExit();
+                return copy;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, LISTING.getExecutor()).whenComplete((copy, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showAlert(Alert.AlertType.ERROR, "Помилка архіву", "Не вдалося прочитати " + entry.getFileName() + " з архіву.");
+            } else {
+                openFile(copy);
+            }
+        }));
+    }
+
     private void setupDisksBox() {
         disksBox.getItems().clear();
-        for (Path p : FileSystems.getDefault().getRootDirectories()) {
-            disksBox.getItems().add(p.toString());
+        // Enumerating drives can wait on removable or network drives, so the window does not wait for it.
+        LISTING.getExecutor().execute(() -> {
+            List<String> roots = new ArrayList<>();
+            for (Path p : FileSystems.getDefault().getRootDirectories()) {
+                roots.add(p.toString());
+            }
+            Platform.runLater(() -> {
+                disksBox.getItems().setAll(roots);
+                // Selected before the handler is attached, so showing the current drive does not navigate away.
+                Path root = ArchiveFileSystems.getHostPath(currentPath).getRoot();
+                disksBox.getSelectionModel().select(root != null ? root.toString() : null);
+                disksBox.setOnAction(this::selectDiskAction);
+            });
+        });
+    }
+
+    /**
+     * Saves the listings of recently visited directories, so the next launch can show them before listing.
+     */
+    public static void saveSnapshot() {
+        try {
+            LISTING.saveSnapshot(SNAPSHOT_DIRECTORIES, SNAPSHOT_ENTRIES);
+        } catch (IOException e) {
+            // The next launch just starts with a cold cache.
         }
-        disksBox.getSelectionModel().select(0);
-        disksBox.setOnAction(this::selectDiskAction);
     }
 
     public void updateList() {
+        LISTING_CACHE.invalidate(currentPath);
         updateList(currentPath);
     }
 
+    public void runOperation(String title, Submission submission, PanelController other) {
+        try {
+            trackBatch(title, submission.submit(), other);
+        } catch (IOException e) {
+            showAlert(Alert.AlertType.ERROR, "Помилка", "Не вдалося поставити операцію в чергу."
+                    + (e.getMessage() != null ? "\n" + e.getMessage() : ""));
+        }
+    }
+
+    public void trackBatch(String title, JobBatch batch, PanelController other) {
+        if (title != null) {
+            new ProgressWindow(title, batch.getProgress(), batch.getCompletion()).show();
+        }
+        batch.getCompletion().whenComplete((result, error) -> Platform.runLater(() -> {
+            List<Path> affectedPaths = batch.getAffectedPaths();
+            refreshEntries(affectedPaths);
+            if (other != null) {
+                other.refreshEntries(affectedPaths);
+            }
+            List<String> failures = batch.getProgress().getFailures();
+            if (!failures.isEmpty()) {
+                showAlert(Alert.AlertType.ERROR, "Помилка операції з файлом", "Не вдалося виконати операцій: "
+                        + failures.size() + "\n" + String.join("\n", failures.subList(0, Math.min(failures.size(), MAX_REPORTED_FAILURES))));
+            }
+        }));
+    }
+
+    private void refreshEntries(List<Path> paths) {
+        Path directory = currentPath;
+        List<Path> localPaths = paths.stream()
+                .filter(path -> directory.equals(path.toAbsolutePath().normalize().getParent()))
+                .toList();
+        if (localPaths.isEmpty()) {
+            return;
+        }
+        // One stat per path; a large batch would freeze the window, so the cache listener repaints when done.
+        LISTING.getExecutor().execute(() -> {
+            if (!LISTING_CACHE.update(localPaths)) {
+                Platform.runLater(() -> {
+                    if (directory.equals(currentPath)) {
+                        updateList();
+                    }
+                });
+            }
+        });
+    }
+
     @FXML
     public void searchFiles(ActionEvent actionEvent) {
-        String searchQuery = searchField.getText().trim().toLowerCase();
+        String searchQuery = searchField.getText().trim();
         if (searchQuery.isEmpty()) {
             updateList(currentPath);
             return;
         }
+        FileQuery query;
         try {
-            filesTable.getItems().clear();
-            filesTable.getItems().addAll(Files.list(currentPath)
-                    .filter(p -> p.getFileName().toString().toLowerCase().contains(searchQuery))
-                    .map(FileInfo::new).toList());
-        } catch (IOException e) {
-            showAlert(Alert.AlertType.WARNING, "Помилка пошуку", "Не вдалося знайти файли.");
+            query = FileQuery.parse(searchQuery);
+        } catch (PatternSyntaxException e) {
+            showAlert(Alert.AlertType.WARNING, "Помилка пошуку", "Некоректний шаблон пошуку.");
+            return;
+        }
+        cancelListing();
+        searchActive = true;
+        listingView.setSource(new FileInfoColumns());
+
+        FileSearchTask task = new FileSearchTask(SEARCH, currentPath, query, this::appendBatch);
+        task.setOnSucceeded(event -> finishTask(task));
+        task.setOnFailed(event -> {
+            if (finishTask(task)) {
+                showAlert(Alert.AlertType.WARNING, "Помилка пошуку", "Не вдалося знайти файли.");
+            }
+        });
+        startTask(task);
+    }
+
+    @FXML
+    public void searchContent(ActionEvent actionEvent) {
+        String searchQuery = searchField.getText();
+        if (searchQuery.isBlank()) {
+            return;
+        }
+        ContentMatcher matcher;
+        try {
+            matcher = ContentMatcher.parse(searchQuery);
+        } catch (PatternSyntaxException e) {
+            showAlert(Alert.AlertType.WARNING, "Помилка пошуку", "Некоректний шаблон пошуку.");
+            return;
         }
+        new ContentSearchWindow(SEARCH, currentPath, matcher, searchQuery).show(LISTING.getExecutor());
+    }
+
+    @FXML
+    public void findDuplicates(ActionEvent actionEvent) {
+        if (ArchiveFileSystems.isInArchive(currentPath)) {
+            showAlert(Alert.AlertType.WARNING, "Пошук дублікатів", "Архів відкрито лише для читання.");
+            return;
+        }
+        new DuplicateSearchWindow(SEARCH, operations, this, currentPath).show(LISTING.getExecutor());
     }
 
     public void updateList(Path path) {
-        try {
-            currentPath = path.normalize().toAbsolutePath();
-            pathField.setText(currentPath.toString());
-            filesTable.getItems().clear();
-            filesTable.getItems().addAll(Files.list(path).map(FileInfo::new).toList());
-        } catch (IOException e) {
-            showAlert(Alert.AlertType.WARNING, "Помилка оновлення", "Не вдалося оновити список файлів.");
+        cancelListing();
+        searchActive = false;
+        Path previous = currentPath;
+        currentPath = path.normalize().toAbsolutePath();
+        // Held before the old path is let go, so moving within one archive never closes it.
+        ArchiveFileSystems.retain(currentPath);
+        if (previous != null) {
+            ArchiveFileSystems.release(previous);
+        }
+        pathField.setText(ArchiveFileSystems.getDisplayName(currentPath));
+
+        LISTING.remember(currentPath);
+
+        FileInfoColumns cached = LISTING_CACHE.get(currentPath);
+        if (cached != null) {
+            listingView.setSource(cached);
+            return;
+        }
+        // Last session's listing is shown at once; the fresh one replaces it whole instead of streaming in.
+        FileInfoColumns snapshot = LISTING.getSnapshot(currentPath);
+        FileInfoColumns revalidated = snapshot != null ? new FileInfoColumns() : null;
+        listingView.setSource(snapshot != null ? snapshot : new FileInfoColumns());
+        LISTING_CACHE.watch(currentPath);
+
+        DirectoryListingTask task = new DirectoryListingTask(LISTING, currentPath,
+                revalidated != null ? batch -> batch.forEach(revalidated::add) : this::appendBatch);
+        task.setOnSucceeded(event -> {
+            if (finishTask(task)) {
+                if (revalidated != null) {
+                    listingView.setSource(revalidated);
+                }
+                LISTING_CACHE.put(task.getDirectory(), listingView.getSource());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (finishTask(task)) {
+                LISTING_CACHE.invalidate(task.getDirectory());
+                showAlert(Alert.AlertType.WARNING, "Помилка оновлення", "Не вдалося оновити список файлів.");
+            }
+        });
+        startTask(task);
+    }
+
+    private void showColumns(FileInfoColumns columns) {
+        FileInfo selected = filesTable.getSelectionModel().getSelectedItem();
+        fileList.setColumns(columns);
+        if (selected != null) {
+            int index = fileList.getColumns().indexOf(selected.getFilename());
+            if (index >= 0) {
+                filesTable.getSelectionModel().select(index);
+            }
+        }
+        if (listingTask == null) {
+            statusLabel.setText(getCountText());
+        }
+    }
+
+    private void onDirectoryChanged(Path directory) {
+        if (!changedDirectories.add(directory)) {
+            return;
+        }
+        Platform.runLater(() -> {
+            changedDirectories.remove(directory);
+            if (!directory.equals(currentPath) || listingTask != null || searchActive) {
+                return;
+            }
+            FileInfoColumns cached = LISTING_CACHE.get(directory);
+            if (cached != null) {
+                listingView.setSource(cached);
+            } else {
+                updateList(directory);
+            }
+        });
+    }
+
+    private void onDirectorySizeChanged(Path directory) {
+        // Subtrees finish one after another; repaint at most once per pulse.
+        if (sizesChanged.getAndSet(true)) {
+            return;
+        }
+        Platform.runLater(() -> {
+            sizesChanged.set(false);
+            filesTable.refresh();
+        });
+    }
+
+    private long getSize(FileInfo fileInfo) {
+        if (fileInfo.getType() != FileInfo.FileType.DIRECTORY) {
+            return fileInfo.getSize();
+        }
+        return DIRECTORY_SIZES.get(currentPath.resolve(fileInfo.getFilename()));
+    }
+
+    private void computeDirectorySizes(List<FileInfo> items) {
+        for (FileInfo fileInfo : items) {
+            if (fileInfo.getType() == FileInfo.FileType.DIRECTORY) {
+                DIRECTORY_SIZES.compute(currentPath.resolve(fileInfo.getFilename()));
+            }
+        }
+    }
+
+    private void startTask(FileBatchTask task) {
+        listingTask = task;
+        task.messageProperty().addListener((observable, oldMessage, message) -> {
+            if (task == listingTask) {
+                statusLabel.setText(message);
+            }
+        });
+        listingIndicator.setVisible(true);
+        statusLabel.setText(task instanceof FileSearchTask ? "Пошук..." : "Завантаження...");
+        LISTING.getExecutor().execute(task);
+    }
+
+    private void appendBatch(List<FileInfo> batch) {
+        listingView.append(batch);
+    }
+
+    private boolean finishTask(FileBatchTask task) {
+        if (task != listingTask) {
+            return false;
+        }
+        listingTask = null;
+        listingIndicator.setVisible(false);
+        statusLabel.setText(getCountText());
+        return true;
+    }
+
+    private String getCountText() {
+        String text = (searchActive ? "Знайдено: " : "Елементів: ") + fileList.size();
+        return listingView.isFiltered() ? text + " з " + listingView.getSource().size() : text;
+    }
+
+    private void cancelListing() {
+        if (listingTask != null) {
+            listingTask.cancel();
+            listingTask = null;
+            listingIndicator.setVisible(false);
         }
     }
 
     @FXML
     public void btnPathUpAction(ActionEvent actionEvent) {
         Path upperPath = currentPath.getParent();
+        Path archive = ArchiveFileSystems.getArchive(currentPath);
+        if (upperPath == null && archive != null) {
+            // Leaving an archive's root goes back to the directory the archive file is in.
+            upperPath = archive.getParent();
+        }
         if (upperPath != null) {
             updateList(upperPath);
         }
     }
 
-    @FXML
     public void selectDiskAction(ActionEvent actionEvent) {
         ComboBox<String> element = (ComboBox<String>) actionEvent.getSource();
         updateList(Paths.get(element.getSelectionModel().getSelectedItem()));
     }
 
-    public String getSelectedFilename() {
-        return filesTable.isFocused() ? filesTable.getSelectionModel().getSelectedItem().getFilename() : null;
+    public List<String> getSelectedFilenames() {
+        return getSelectedFilenames(filesTable.isFocused());
+    }
+
+    private List<String> getSelectedFilenames(boolean focused) {
+        if (!focused) {
+            return List.of();
+        }
+        return filesTable.getSelectionModel().getSelectedItems().stream().map(FileInfo::getFilename).toList();
     }
 
     private void showAlert(Alert.AlertType alertType, String title, String message) {
@@ -254,25 +691,15 @@ public class PanelController implements Initializable {
     }
 
     private String getFileType(Path path) {
-        try {
-            String mimeType = Files.probeContentType(path);
-            if (mimeType != null) {
-                if (mimeType.startsWith("text")) {
-                    return "text";
-                } else if (mimeType.startsWith("image")) {
-                    return "image";
-                } else if (mimeType.startsWith("video")) {
-                    return "video";
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return "unknown";
+        return FILE_TYPES.getCategory(path);
     }
 
     private void openTextFile(Path path) {
     try {
+        if (Files.size(path) > EDITABLE_TEXT_LIMIT) {
+            new LargeFileViewer(path).show();
+            return;
+        }
         String content = Files.readString(path);
 
         Stage stage = new Stage();
@@ -307,7 +734,7 @@ public class PanelController implements Initializable {
         Stage stage = new Stage();
         stage.setTitle(path.getFileName().toString());
 
-        Image image = new Image(path.toUri().toString());
+        Image image = new Image(path.toUri().toString(), true);
         ImageView imageView = new ImageView(image);
 
         setImageViewProperties(stage, imageView);
@@ -411,9 +838,17 @@ public class PanelController implements Initializable {
         ContextMenu contextMenu = new ContextMenu();
 
         MenuItem deleteItem = new MenuItem("Видалити");
-        deleteItem.setOnAction(event -> deleteSelectedFile());
+        deleteItem.setOnAction(event -> deleteSelectedFiles());
         contextMenu.getItems().add(deleteItem);
 
+        MenuItem sizeItem = new MenuItem("Обчислити розмір");
+        sizeItem.setOnAction(event -> computeDirectorySizes(List.copyOf(filesTable.getSelectionModel().getSelectedItems())));
+        contextMenu.getItems().add(sizeItem);
+
+        MenuItem allSizesItem = new MenuItem("Обчислити розміри всіх папок");
+        allSizesItem.setOnAction(event -> computeDirectorySizes(List.copyOf(fileList)));
+        contextMenu.getItems().add(allSizesItem);
+
         MenuItem createFileItem = new MenuItem("Створити файл");
         createFileItem.setOnAction(event -> createNewFile());
         contextMenu.getItems().add(createFileItem);
@@ -431,16 +866,8 @@ public class PanelController implements Initializable {
         dialog.setHeaderText("Створити новий файл");
         dialog.setContentText("Введіть ім'я файлу:");
 
-        dialog.showAndWait().ifPresent(fileName -> {
-            Path path = Paths.get(fileName);
-            try {
-                Files.createFile(path);
-                showAlert(Alert.AlertType.INFORMATION, "Файл створено", "Файл успішно створено: " + path.toString());
-                refreshFileList();
-            } catch (IOException e) {
-                showAlert(Alert.AlertType.ERROR, "Помилка створення файлу", "Не вдалося створити файл.");
-            }
-        });
+        dialog.showAndWait().ifPresent(fileName ->
+                runOperation(null, () -> operations.createFile(currentPath.resolve(fileName)), null));
     }
 
     private void createNewDirectory() {
@@ -449,43 +876,67 @@ public class PanelController implements Initializable {
         dialog.setHeaderText("Створити нову папку");
         dialog.setContentText("Введіть ім'я папки:");
 
-        dialog.showAndWait().ifPresent(directoryName -> {
-            Path path = Paths.get(directoryName);
-            try {
-                Files.createDirectory(path);
-                showAlert(Alert.AlertType.INFORMATION, "Папка створена", "Папка успішно створена: " + path.toString());
-                refreshFileList();
-            } catch (IOException e) {
-                showAlert(Alert.AlertType.ERROR, "Помилка створення папки", "Не вдалося створити папку.");
-            }
-        });
+        dialog.showAndWait().ifPresent(directoryName ->
+                runOperation(null, () -> operations.createDirectory(currentPath.resolve(directoryName)), null));
     }
 
     private void refreshFileList() {
     }
 
-    private void deleteSelectedFile() {
-        FileInfo selectedItem = filesTable.getSelectionModel().getSelectedItem();
-        if (selectedItem != null) {
-            Path pathToFile = Paths.get(pathField.getText()).resolve(selectedItem.getFilename());
-            if (!Files.isDirectory(pathToFile)) {
-                try {
-                    Files.delete(pathToFile);
-                    updateList(currentPath);
-                } catch (IOException e) {
-                    showAlert(Alert.AlertType.ERROR, "Помилка видалення файлу", "Не вдалося видалити вибраний файл.");
-                }
-            }
+    private void deleteSelectedFiles() {
+        List<FileInfo> selected = List.copyOf(filesTable.getSelectionModel().getSelectedItems());
+        List<Path> paths = selected.stream()
+                .map(fileInfo -> currentPath.resolve(fileInfo.getFilename()))
+                .toList();
+        if (paths.isEmpty()) {
+            return;
+        }
+        if (!confirmDelete(paths)) {
+            return;
+        }
+        // Directory trees may take a while, so they get a progress window just like multi-row selections.
+        boolean hasDirectories = selected.stream().anyMatch(fileInfo -> fileInfo.getType() == FileInfo.FileType.DIRECTORY);
+        String title = paths.size() > 1 ? "Видалення (" + paths.size() + ")" : hasDirectories ? "Видалення" : null;
+        runOperation(title, () -> operations.delete(paths), null);
+    }
+
+    /**
+     * Asks before anything is removed, saying how many items are affected, how many of them are whole folders
+     * and whether they go to the trash or are gone for good.
+     */
+    boolean confirmDelete(List<Path> paths) {
+        long directories = paths.stream().filter(path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)).count();
+        StringBuilder text = new StringBuilder("Вибрано елементів: ").append(paths.size());
+        if (directories > 0) {
+            text.append(", з них папок: ").append(directories).append(" (разом з усім вмістом)");
+        }
+        text.append(".\n").append(operations.isTrashMode()
+                ? "Їх буде переміщено до кошика."
+                : "Їх буде видалено остаточно, без можливості відновлення.");
+        ButtonType delete = new ButtonType("Видалити", ButtonBar.ButtonData.YES);
+        ButtonType cancel = new ButtonType("Скасувати", ButtonBar.ButtonData.CANCEL_CLOSE);
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, text.toString(), delete, cancel);
+        alert.setTitle("Видалення");
+        alert.setHeaderText(paths.size() == 1
+                ? "Видалити " + ArchiveFileSystems.getDisplayName(paths.get(0)) + "?"
+                : "Видалити " + paths.size() + " елементів?");
+        return alert.showAndWait().orElse(cancel) == delete;
+    }
+
+    private String formatFileSize(long size) {
+        if (size == FileInfo.DIRECTORY_SIZE) {
+            return "[DIR]";
         }
+        return size == FileInfo.UNKNOWN_SIZE ? "?" : String.format("%,d bytes", size);
     }
 
-    private ImageView getImageView(FileInfo.FileType type) {
-        String imagePath = type == FileInfo.FileType.DIRECTORY ? "/folder-icon.png" : "/file-icon.png";
-        return new ImageView(new Image(imagePath));
+    private String formatLastModified(FileInfo fileInfo, DateTimeFormatter dtf) {
+        return fileInfo.getLastModified() != null ? fileInfo.getLastModified().format(dtf) : "";
     }
 
-    private String formatFileSize(Long size) {
-        return size == -1L ? "[DIR]" : String.format("%,d bytes", size);
+    @FunctionalInterface
+    public interface Submission {
+        JobBatch submit() throws IOException;
     }
 }
 
@@ -0,0 +1,92 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.concurrent.CompletableFuture;
+
+public class ProgressWindow {
+    private final Stage stage = new Stage();
+    private final OperationProgress progress;
+    private final ProgressBar progressBar = new ProgressBar(-1);
+    private final Label itemsLabel = new Label();
+    private final Label bytesLabel = new Label();
+    private final Label speedLabel = new Label();
+    private final Button pauseButton = new Button("Пауза");
+    private final Timeline timeline = new Timeline(new KeyFrame(Duration.millis(250), event -> update()));
+
+    public ProgressWindow(String title, OperationProgress progress, CompletableFuture<?> completion) {
+        this.progress = progress;
+
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        pauseButton.setOnAction(event -> togglePause());
+        Button cancelButton = new Button("Скасувати");
+        cancelButton.setOnAction(event -> progress.cancel());
+
+        HBox controls = new HBox(10, pauseButton, cancelButton);
+        VBox vbox = new VBox(5, progressBar, itemsLabel, bytesLabel, speedLabel, controls);
+        vbox.setPadding(new Insets(10));
+
+        stage.setTitle(title);
+        stage.setScene(new Scene(vbox, 420, 160));
+        stage.setOnCloseRequest(event -> progress.cancel());
+
+        timeline.setCycleCount(Timeline.INDEFINITE);
+        completion.whenComplete((result, error) -> Platform.runLater(this::close));
+    }
+
+    public void show() {
+        update();
+        timeline.play();
+        stage.show();
+    }
+
+    private void close() {
+        timeline.stop();
+        stage.close();
+    }
+
+    private void togglePause() {
+        if (progress.isPaused()) {
+            progress.resume();
+            pauseButton.setText("Пауза");
+        } else {
+            progress.pause();
+            pauseButton.setText("Продовжити");
+        }
+    }
+
+    private void update() {
+        long bytesTotal = progress.getBytesTotal();
+        progressBar.setProgress(progress.isTotalKnown() && bytesTotal > 0 ? (double) progress.getBytesDone() / bytesTotal : -1);
+        itemsLabel.setText("Файлів: " + progress.getItemsDone() + " з " + progress.getItemsTotal()
+                + (progress.isTotalKnown() ? "" : "+"));
+        long written = progress.getBytesWritten();
+        bytesLabel.setText(formatBytes(progress.getBytesDone()) + " з " + formatBytes(bytesTotal)
+                + (written > 0 ? ", записано " + formatBytes(written) : ""));
+        long eta = progress.getEtaSeconds();
+        speedLabel.setText(formatBytes((long) progress.getBytesPerSecond()) + "/с, залишилось: "
+                + (eta < 0 ? "?" : String.format("%d:%02d:%02d", eta / 3600, eta / 60 % 60, eta % 60)));
+    }
+
+    static String formatBytes(long bytes) {
+        String[] units = {"B", "KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = 0;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, units[unit]);
+    }
+}
@@ -0,0 +1,163 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RecursiveDeleter {
+    // Earlier versions kept a trash directory of this name next to every deleted item.
+    private static final String LEGACY_TRASH_DIRECTORY = ".ipz-trash";
+    private static final String TRASH_DIRECTORY = ".ipz-trash-" + System.getProperty("user.name");
+
+    private final IoScheduler io;
+    private final Path homeTrash;
+    private final Map<FileStore, Path> trashes = new ConcurrentHashMap<>();
+
+    /**
+     * @param homeTrash the trash used for the file store that holds it, normally inside the app's data directory
+     */
+    public RecursiveDeleter(IoScheduler io, Path homeTrash) {
+        this.io = io;
+        this.homeTrash = homeTrash;
+    }
+
+    public void delete(Path path, OperationProgress progress) {
+        progress.addTotal(1, 0);
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            deleteEntry(path, progress);
+            return;
+        }
+        try {
+            deleteTree(path, io.laneFor(path), progress).join();
+        } catch (CompletionException e) {
+            // A cancelled walk is reported as such, not as a failure of the composed future.
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public Path moveToTrash(Path path) throws IOException {
+        Path trash = trashFor(path.toAbsolutePath().normalize());
+        Files.createDirectories(trash);
+        Path trashed = trash.resolve(UUID.randomUUID() + "-" + path.getFileName());
+        Files.move(path, trashed, StandardCopyOption.ATOMIC_MOVE);
+        return trashed;
+    }
+
+    public void purge(Path trashed, OperationProgress progress) {
+        delete(trashed, progress);
+        if (!trashed.getParent().getFileName().toString().equals(LEGACY_TRASH_DIRECTORY)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(trashed.getParent());
+        } catch (DirectoryNotEmptyException e) {
+            // Another purge is still emptying the same trash directory and will remove it.
+        } catch (IOException e) {
+            progress.addFailure(trashed.getParent(), e);
+        }
+    }
+
+    /**
+     * One trash per file store, so moving into it is a rename: the home trash on its own store, and a hidden
+     * directory at the top of any other store. Either way it stays out of the folders the user browses.
+     */
+    private Path trashFor(Path path) throws IOException {
+        Path parent = path.getParent();
+        if (parent == null || path.getFileSystem() != FileSystems.getDefault()) {
+            throw new IOException("Немає кошика для " + path);
+        }
+        FileStore store = Files.getFileStore(parent);
+        Path trash = trashes.get(store);
+        if (trash != null) {
+            return trash;
+        }
+        trash = store.equals(storeOf(homeTrash)) ? homeTrash : topOf(parent, store).resolve(TRASH_DIRECTORY);
+        trashes.put(store, trash);
+        return trash;
+    }
+
+    private static FileStore storeOf(Path path) {
+        // The home trash may not exist yet, so its nearest existing ancestor decides.
+        for (Path current = path.toAbsolutePath(); current != null; current = current.getParent()) {
+            try {
+                return Files.getFileStore(current);
+            } catch (IOException e) {
+                // Not created yet; try the parent.
+            }
+        }
+        return null;
+    }
+
+    private static Path topOf(Path directory, FileStore store) {
+        Path top = directory;
+        while (top.getParent() != null && store.equals(storeOf(top.getParent()))) {
+            top = top.getParent();
+        }
+        return top;
+    }
+
+    /**
+     * Empties one directory on the file store's I/O lane, then its subdirectories the same way, and removes the
+     * directory once they are gone. Parents wait by composition, as in {@link FileIndex}, so no thread is blocked.
+     */
+    private CompletableFuture<Void> deleteTree(Path directory, IoScheduler.Lane lane, OperationProgress progress) {
+        return io.submit(lane, () -> deleteFiles(directory, progress)).thenCompose(subdirectories -> {
+            List<CompletableFuture<Void>> children = new ArrayList<>(subdirectories.size());
+            for (Path subdirectory : subdirectories) {
+                children.add(deleteTree(subdirectory, lane, progress));
+            }
+            return CompletableFuture.allOf(children.toArray(new CompletableFuture<?>[0]));
+        }).thenCompose(done -> io.submit(lane, () -> {
+            deleteEntry(directory, progress);
+            return null;
+        }));
+    }
+
+    /**
+     * Deletes the files of one directory and returns its subdirectories, which are left for separate tasks.
+     */
+    private static List<Path> deleteFiles(Path directory, OperationProgress progress) {
+        progress.checkpoint();
+        List<Path> subdirectories = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                progress.checkpoint();
+                progress.addTotal(1, 0);
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    subdirectories.add(entry);
+                } else {
+                    deleteEntry(entry, progress);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            progress.addFailure(directory, e instanceof DirectoryIteratorException iteratorException ? iteratorException.getCause() : e);
+        }
+        return subdirectories;
+    }
+
+    private static void deleteEntry(Path path, OperationProgress progress) {
+        try {
+            Files.delete(path);
+            progress.addDone(1, 0);
+        } catch (IOException e) {
+            progress.addFailure(path, e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Name, content and duplicate search without any UI. Name search keeps an index for the last few roots,
+ * refreshed from the listing cache's change notifications.
+ */
+public class SearchService {
+    private static final int MAX_INDEXES = 4;
+
+    private final Executor executor;
+    private final IoScheduler io;
+    private final ContentSearch contentSearch;
+    private final DuplicateFinder duplicateFinder;
+    private final Map<Path, FileIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, FileIndex> eldest) {
+            return size() > MAX_INDEXES;
+        }
+    };
+
+    public SearchService(ListingService listing, int workers, Path hashCache) {
+        this.executor = listing.getExecutor();
+        this.io = listing.getIoScheduler();
+        this.contentSearch = new ContentSearch(workers);
+        this.duplicateFinder = new DuplicateFinder(listing.getIoScheduler(), new HashCache(hashCache), workers);
+        listing.getCache().addListener(this::refreshIndexes);
+    }
+
+    public boolean isIndexed(Path root) {
+        return getIndex(root).isBuilt();
+    }
+
+    /**
+     * Reports files under the root whose names match, named relative to the root.
+     */
+    public void search(Path root, FileQuery query, BooleanSupplier cancelled, Consumer<FileInfo> results) {
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.NAME_SEARCH, root);
+        long[] count = new long[1];
+        try {
+            FileIndex index = getIndex(root);
+            if (!index.isBuilt()) {
+                index.build(cancelled);
+            }
+            index.search(root, query, cancelled, relative -> {
+                results.accept(FileInfo.of(root.resolve(relative)).withFilename(relative));
+                count[0]++;
+            });
+        } finally {
+            sample.stop(count[0], 0);
+        }
+    }
+
+    public CompletableFuture<List<FileInfo>> search(Path root, FileQuery query) {
+        CompletableFuture<List<FileInfo>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            List<FileInfo> results = new ArrayList<>();
+            try {
+                search(root, query, future::isDone, results::add);
+                future.complete(results);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    public void searchContent(Path root, ContentMatcher matcher, BooleanSupplier cancelled, Consumer<ContentHit> hits) throws IOException {
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.CONTENT_SEARCH, root);
+        LongAdder count = new LongAdder();
+        try {
+            contentSearch.search(root, matcher, cancelled, hit -> {
+                count.increment();
+                hits.accept(hit);
+            });
+        } finally {
+            sample.stop(count.sum(), 0);
+        }
+    }
+
+    /**
+     * Collects at most {@code maxHits} content hits. Hits arrive from several workers, so their order is not fixed.
+     */
+    public CompletableFuture<List<ContentHit>> searchContent(Path root, ContentMatcher matcher, int maxHits) {
+        CompletableFuture<List<ContentHit>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            List<ContentHit> hits = new ArrayList<>();
+            try {
+                searchContent(root, matcher, () -> future.isDone() || isFull(hits, maxHits), hit -> {
+                    synchronized (hits) {
+                        if (hits.size() < maxHits) {
+                            hits.add(hit);
+                        }
+                    }
+                });
+                synchronized (hits) {
+                    future.complete(List.copyOf(hits));
+                }
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Finds groups of identical files under the root, the most wasted space first.
+     */
+    public List<DuplicateGroup> findDuplicates(Path root, BooleanSupplier cancelled, DuplicateFinder.Listener listener) throws IOException {
+        Metrics.Sample sample = Metrics.start(Metrics.Kind.DUPLICATE_SEARCH, root);
+        List<DuplicateGroup> groups = List.of();
+        try {
+            groups = duplicateFinder.find(root, cancelled, listener);
+            return groups;
+        } finally {
+            sample.stop(groups.stream().mapToLong(group -> group.files().size()).sum(),
+                    groups.stream().mapToLong(DuplicateGroup::getWasted).sum());
+        }
+    }
+
+    private static boolean isFull(List<ContentHit> hits, int maxHits) {
+        synchronized (hits) {
+            return hits.size() >= maxHits;
+        }
+    }
+
+    /**
+     * Returns the index for the root, or a built one of an ancestor that already covers it.
+     */
+    private FileIndex getIndex(Path root) {
+        synchronized (indexes) {
+            FileIndex index = indexes.get(root);
+            if (index == null || !index.isBuilt()) {
+                FileIndex covering = indexes.values().stream()
+                        .filter(other -> other.isBuilt() && !other.isStale() && other.covers(root))
+                        .findFirst().orElse(null);
+                if (covering != null) {
+                    // Touched so the LRU order keeps the index that is actually in use.
+                    return indexes.get(covering.getRoot());
+                }
+            }
+            if (index == null || index.isStale()) {
+                index = new FileIndex(root, io);
+                indexes.put(root, index);
+            }
+            return index;
+        }
+    }
+
+    private void refreshIndexes(Path directory) {
+        List<FileIndex> covering;
+        synchronized (indexes) {
+            covering = new ArrayList<>(indexes.values());
+        }
+        for (FileIndex index : covering) {
+            if (index.covers(directory)) {
+                executor.execute(() -> index.refreshDirectory(directory));
+            }
+        }
+    }
+}
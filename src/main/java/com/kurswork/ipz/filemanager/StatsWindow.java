@@ -0,0 +1,83 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.function.Function;
+
+public class StatsWindow {
+    private final Stage stage = new Stage();
+    private final TableView<Metrics.Kind> table = new TableView<>(FXCollections.observableArrayList(Metrics.Kind.values()));
+    private final Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(1), event -> table.refresh()));
+
+    public StatsWindow() {
+        table.getColumns().add(createColumn("Операція", 170, Metrics.Kind::getLabel));
+        table.getColumns().add(createMetricColumn("Кількість", 80, metric -> String.format("%,d", metric.getCount())));
+        table.getColumns().add(createMetricColumn("Середнє, мс", 90, metric -> formatMillis(metric.getMeanMillis())));
+        table.getColumns().add(createMetricColumn("p50, мс", 80, metric -> formatMillis(metric.getP50Millis())));
+        table.getColumns().add(createMetricColumn("p95, мс", 80, metric -> formatMillis(metric.getP95Millis())));
+        table.getColumns().add(createMetricColumn("p99, мс", 80, metric -> formatMillis(metric.getP99Millis())));
+        table.getColumns().add(createMetricColumn("Макс, мс", 80, metric -> formatMillis(metric.getMaxMillis())));
+        table.getColumns().add(createMetricColumn("Елементів/с", 100, metric -> String.format("%,.0f", metric.getItemsPerSecond())));
+        table.getColumns().add(createMetricColumn("Швидкість", 100,
+                metric -> ProgressWindow.formatBytes((long) metric.getBytesPerSecond()) + "/с"));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Button resetButton = new Button("Скинути");
+        resetButton.setOnAction(event -> {
+            Metrics.reset();
+            table.refresh();
+        });
+        // A slow mount shows up as slow listing and attribute reads; a slow renderer as FX-thread stalls.
+        Label hintLabel = new Label("Блокування FX-потоку — затримки понад " + Controller.FX_STALL_THRESHOLD_MILLIS + " мс");
+
+        HBox controls = new HBox(10, resetButton, hintLabel);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setPadding(new Insets(5));
+
+        stage.setTitle("Статистика");
+        stage.setScene(new Scene(new VBox(controls, table), 900, 320));
+        stage.setOnHidden(event -> timeline.stop());
+        timeline.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    public void show() {
+        timeline.play();
+        stage.show();
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format("%.2f", millis);
+    }
+
+    private static TableColumn<Metrics.Kind, String> createColumn(String title, double width, Function<Metrics.Kind, String> value) {
+        TableColumn<Metrics.Kind, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(value.apply(param.getValue())));
+        column.setSortable(false);
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    private static TableColumn<Metrics.Kind, String> createMetricColumn(String title, double width, MetricFormatter formatter) {
+        return createColumn(title, width, kind -> formatter.format(Metrics.get(kind)));
+    }
+
+    @FunctionalInterface
+    private interface MetricFormatter {
+        String format(Metrics.Metric metric);
+    }
+}
@@ -0,0 +1,265 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+/**
+ * Brings a target tree up to date with a source tree. Files whose size and modification time match are
+ * skipped; the rest are compared block by block in parallel, only differing blocks are written, and every
+ * written block is read back and checked against the source block's CRC32C. Entries that exist only in
+ * the target are left alone.
+ */
+public class SyncEngine {
+    static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int BLOCKS_PER_SEGMENT = 16;
+    // FAT and exFAT store modification times with two-second precision, and so do zip entries.
+    private static final long MTIME_WINDOW_MILLIS = 2000;
+    private static final Set<String> COARSE_TIME_STORES = Set.of("vfat", "msdos", "fat", "fat32", "exfat", "zipfs");
+
+    private final int workers;
+    private final ExecutorService workerPool;
+    private final ExecutorService coordinatorPool;
+    private final ThreadLocal<ByteBuffer[]> buffers = ThreadLocal.withInitial(
+            () -> new ByteBuffer[]{ByteBuffer.allocateDirect(BLOCK_SIZE), ByteBuffer.allocateDirect(BLOCK_SIZE)});
+
+    public SyncEngine(int workers) {
+        this.workers = workers;
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "sync-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.coordinatorPool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sync-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Void> sync(Path source, Path target, OperationProgress progress) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                syncTree(source, target, progress);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, coordinatorPool);
+    }
+
+    private void syncTree(Path source, Path target, OperationProgress progress) throws IOException {
+        if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS) && target.toAbsolutePath().normalize().startsWith(source.toAbsolutePath().normalize())) {
+            throw new IOException("Неможливо синхронізувати папку з її ж вмістом: " + source);
+        }
+        boolean coarseTimes = hasCoarseTimes(source) || hasCoarseTimes(target);
+        int maxInFlight = workers * 4;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    progress.checkpoint();
+                    Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    progress.checkpoint();
+                    Path targetFile = source.equals(file) ? target : target.resolve(source.relativize(file).toString());
+                    try {
+                        syncFile(file, targetFile, attrs, coarseTimes, progress, inFlight);
+                    } catch (IOException e) {
+                        progress.addFailure(file, e);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    progress.addFailure(file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            progress.setTotalKnown();
+        } finally {
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+        progress.checkpoint();
+    }
+
+    private void syncFile(Path source, Path target, BasicFileAttributes attrs, boolean coarseTimes,
+                          OperationProgress progress, Semaphore inFlight) throws IOException {
+        BasicFileAttributes targetAttrs = readAttributes(target);
+        if (!attrs.isRegularFile()) {
+            // Links and special files are small; they are simply recreated when anything about them differs.
+            progress.addTotal(1, 0);
+            if (targetAttrs == null || targetAttrs.isRegularFile() || !isSameTime(attrs, targetAttrs, coarseTimes)) {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            }
+            progress.addDone(1, 0);
+            return;
+        }
+        if (targetAttrs != null && targetAttrs.isRegularFile() && targetAttrs.size() == attrs.size() && isSameTime(attrs, targetAttrs, coarseTimes)) {
+            progress.addTotal(1, 0);
+            progress.addDone(1, 0);
+            return;
+        }
+        progress.addTotal(1, attrs.size());
+        long segmentSize = (long) BLOCK_SIZE * BLOCKS_PER_SEGMENT;
+        int segments = (int) Math.max(1, (attrs.size() + segmentSize - 1) / segmentSize);
+        FileSync fileSync = new FileSync(source, target, attrs, progress, segments);
+        for (int i = 0; i < segments; i++) {
+            long from = i * segmentSize;
+            long to = Math.min(attrs.size(), from + segmentSize);
+            inFlight.acquireUninterruptibly();
+            workerPool.execute(() -> {
+                try {
+                    fileSync.syncSegment(from, to);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Times must match exactly, unless one side keeps only two-second times: a coarse store, or a time that
+     * falls on an even second, as a file last written to such a store would have.
+     */
+    private static boolean isSameTime(BasicFileAttributes a, BasicFileAttributes b, boolean coarseTimes) {
+        long first = a.lastModifiedTime().toMillis();
+        long second = b.lastModifiedTime().toMillis();
+        if (first == second) {
+            return true;
+        }
+        boolean coarse = coarseTimes || first % MTIME_WINDOW_MILLIS == 0 || second % MTIME_WINDOW_MILLIS == 0;
+        return coarse && Math.abs(first - second) < MTIME_WINDOW_MILLIS;
+    }
+
+    private static boolean hasCoarseTimes(Path path) {
+        // The target may not exist yet, so its nearest existing ancestor decides.
+        for (Path current = path.toAbsolutePath(); current != null; current = current.getParent()) {
+            try {
+                return COARSE_TIME_STORES.contains(Files.getFileStore(current).type().toLowerCase(Locale.ROOT));
+            } catch (IOException e) {
+                // Not created yet; try the parent.
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length, ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // Keep reading until the block is full or the file ends.
+        }
+        return buffer.flip();
+    }
+
+    private static long checksum(ByteBuffer block) {
+        CRC32C crc = new CRC32C();
+        crc.update(block.duplicate());
+        return crc.getValue();
+    }
+
+    private final class FileSync {
+        private final Path source;
+        private final Path target;
+        private final BasicFileAttributes attrs;
+        private final OperationProgress progress;
+        private final AtomicInteger remainingSegments;
+        private volatile boolean failed;
+
+        private FileSync(Path source, Path target, BasicFileAttributes attrs, OperationProgress progress, int segments) {
+            this.source = source;
+            this.target = target;
+            this.attrs = attrs;
+            this.progress = progress;
+            this.remainingSegments = new AtomicInteger(segments);
+        }
+
+        void syncSegment(long from, long to) {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                ByteBuffer[] pair = buffers.get();
+                for (long position = from; position < to && !failed; position += BLOCK_SIZE) {
+                    progress.checkpoint();
+                    int length = (int) Math.min(BLOCK_SIZE, to - position);
+                    ByteBuffer sourceBlock = read(in, position, length, pair[0]);
+                    if (sourceBlock.remaining() != length) {
+                        throw new IOException("Файл змінився під час синхронізації: " + source);
+                    }
+                    // Both trees are readable here, so blocks are compared exactly instead of by hash.
+                    ByteBuffer targetBlock = read(out, position, length, pair[1]);
+                    if (!sourceBlock.equals(targetBlock)) {
+                        long expected = checksum(sourceBlock);
+                        while (sourceBlock.hasRemaining()) {
+                            out.write(sourceBlock, position + sourceBlock.position());
+                        }
+                        progress.addWritten(length);
+                        if (checksum(read(out, position, length, pair[1])) != expected) {
+                            throw new IOException("Перевірка записаного блоку не пройдена: " + target);
+                        }
+                    }
+                    progress.addDone(0, length);
+                }
+            } catch (CancellationException e) {
+                // The modification time stays old, so the next sync checks this file again.
+                failed = true;
+            } catch (IOException e) {
+                failed = true;
+                progress.addFailure(source, e);
+            } finally {
+                if (remainingSegments.decrementAndGet() == 0) {
+                    finish();
+                }
+            }
+        }
+
+        private void finish() {
+            if (failed) {
+                return;
+            }
+            try {
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                    if (out.size() > attrs.size()) {
+                        out.truncate(attrs.size());
+                    }
+                }
+                // Set last, so an interrupted sync never leaves a file that looks up to date.
+                Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+                progress.addDone(1, 0);
+            } catch (IOException e) {
+                progress.addFailure(source, e);
+            }
+        }
+    }
+}
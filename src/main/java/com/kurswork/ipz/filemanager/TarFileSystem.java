@@ -0,0 +1,576 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.NotLinkException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Read-only view of a TAR or gzip-compressed TAR archive. Opening it streams through the headers once and
+ * keeps an index of entries with their data offsets. In a plain TAR on a local disk the file data is
+ * skipped with seeks, so indexing reads only the headers, and entries are read in place; a compressed
+ * archive has to be decompressed up to an entry to read it.
+ */
+final class TarFileSystem extends FileSystem {
+    private static final int BLOCK = 512;
+    // GNU long names and pax headers are small; anything larger is a corrupted header.
+    private static final int MAX_META_SIZE = 1024 * 1024;
+
+    private final TarFileSystemProvider provider;
+    private final Path archive;
+    private final boolean compressed;
+    private final boolean seekable;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TarPath root;
+    private volatile boolean open = true;
+
+    static final class Entry implements BasicFileAttributes {
+        private final boolean directory;
+        private final Map<String, Entry> children;
+        private char type;
+        private long size;
+        private FileTime modified;
+        private long offset;
+        private String link;
+
+        private Entry(boolean directory, FileTime modified) {
+            this.directory = directory;
+            this.children = directory ? new LinkedHashMap<>() : null;
+            this.modified = modified;
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return modified;
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return modified;
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return modified;
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return !directory && !isSymbolicLink() && !isOther();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return type == '2';
+        }
+
+        @Override
+        public boolean isOther() {
+            return type == '3' || type == '4' || type == '6';
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public Object fileKey() {
+            return null;
+        }
+    }
+
+    TarFileSystem(TarFileSystemProvider provider, Path archive) throws IOException {
+        this.provider = provider;
+        this.archive = archive;
+        this.compressed = isCompressed(archive);
+        this.seekable = !compressed && archive.getFileSystem() == FileSystems.getDefault();
+        this.root = new TarPath(this, "/");
+        entries.put("/", new Entry(true, Files.getLastModifiedTime(archive)));
+        index();
+    }
+
+    private static boolean isCompressed(Path archive) throws IOException {
+        try (InputStream in = Files.newInputStream(archive)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    Path getArchive() {
+        return archive;
+    }
+
+    private InputStream openArchive() throws IOException {
+        InputStream in = Files.newInputStream(archive);
+        // Small entries are skipped inside the buffer; larger skips reach a local channel stream as seeks.
+        return compressed ? new GZIPInputStream(in, 64 * 1024) : new BufferedInputStream(in, 64 * 1024);
+    }
+
+    private void index() throws IOException {
+        byte[] header = new byte[BLOCK];
+        long position = 0;
+        String longName = null;
+        String longLink = null;
+        Map<String, String> pax = Map.of();
+        try (InputStream in = openArchive()) {
+            while (in.readNBytes(header, 0, BLOCK) == BLOCK && !isZeroBlock(header)) {
+                if (!hasValidChecksum(header)) {
+                    throw new IOException((position == 0 ? "Not a TAR archive: " : "Corrupted TAR header in ") + archive);
+                }
+                position += BLOCK;
+                char type = (char) header[156];
+                long size = pax.containsKey("size") ? Long.parseLong(pax.get("size")) : parseNumber(header, 124, 12);
+                long padded = (size + BLOCK - 1) / BLOCK * BLOCK;
+                if (type == 'L' || type == 'K' || type == 'x') {
+                    if (size > MAX_META_SIZE) {
+                        throw new IOException("Corrupted TAR header in " + archive);
+                    }
+                    byte[] data = in.readNBytes((int) padded);
+                    if (data.length < padded) {
+                        throw new EOFException("Truncated TAR archive: " + archive);
+                    }
+                    position += padded;
+                    if (type == 'L') {
+                        longName = readString(data, 0, (int) size);
+                    } else if (type == 'K') {
+                        longLink = readString(data, 0, (int) size);
+                    } else {
+                        pax = parsePax(data, (int) size);
+                    }
+                    continue;
+                }
+                String name = pax.getOrDefault("path", longName != null ? longName : readName(header));
+                String link = pax.getOrDefault("linkpath", longLink != null ? longLink : readString(header, 157, 100));
+                long modified = pax.containsKey("mtime")
+                        ? (long) (Double.parseDouble(pax.get("mtime")) * 1000) : parseNumber(header, 136, 12) * 1000;
+                if (type != 'g') {
+                    add(name, type, size, modified, position, link);
+                }
+                in.skipNBytes(padded);
+                position += padded;
+                longName = null;
+                longLink = null;
+                pax = Map.of();
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupted TAR header in " + archive, e);
+        }
+    }
+
+    private void add(String rawName, char type, long size, long modified, long offset, String link) {
+        String path = normalizeName(rawName);
+        if (path == null) {
+            // "..", absolute escapes and the archive's own "./" are never listed, so nothing extracts outside a target.
+            return;
+        }
+        FileTime time = FileTime.fromMillis(modified);
+        boolean directory = type == '5' || rawName.endsWith("/");
+        Entry existing = entries.get(path);
+        if (directory && existing != null && existing.isDirectory()) {
+            existing.modified = time;
+            return;
+        }
+        Entry entry = new Entry(directory, time);
+        entry.type = type;
+        if (type == '1') {
+            // A hard link shares the data of an entry that appeared earlier in the archive.
+            Entry target = entries.get(normalizeName(link));
+            if (target == null || !target.isRegularFile()) {
+                return;
+            }
+            entry.type = '0';
+            entry.size = target.size;
+            entry.offset = target.offset;
+        } else if (type == '2') {
+            entry.link = link;
+        } else if (!directory) {
+            entry.size = size;
+            entry.offset = offset;
+        }
+        int separator = path.lastIndexOf('/');
+        Entry parent = getDirectory(separator == 0 ? "/" : path.substring(0, separator));
+        parent.children.put(path.substring(separator + 1), entry);
+        entries.put(path, entry);
+    }
+
+    private Entry getDirectory(String path) {
+        Entry directory = entries.get(path);
+        if (directory != null && directory.isDirectory()) {
+            return directory;
+        }
+        // Archives may omit parent directories; they are made up with the archive's own time.
+        directory = new Entry(true, entries.get("/").modified);
+        directory.type = '5';
+        int separator = path.lastIndexOf('/');
+        getDirectory(separator == 0 ? "/" : path.substring(0, separator)).children.put(path.substring(separator + 1), directory);
+        entries.put(path, directory);
+        return directory;
+    }
+
+    private static String normalizeName(String name) {
+        List<String> names = new ArrayList<>();
+        for (String part : name.split("/")) {
+            if (part.equals("..")) {
+                return null;
+            }
+            if (!part.isEmpty() && !part.equals(".")) {
+                names.add(part);
+            }
+        }
+        return names.isEmpty() ? null : "/" + String.join("/", names);
+    }
+
+    private static String readName(byte[] header) {
+        String name = readString(header, 0, 100);
+        // Only POSIX ustar headers carry a prefix; old GNU headers keep other fields at that offset.
+        boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a'
+                && header[261] == 'r' && header[262] == 0;
+        String prefix = ustar ? readString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static String readString(byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long parseNumber(byte[] header, int offset, int length) {
+        if ((header[offset] & 0x80) != 0) {
+            // GNU base-256 encoding for values that do not fit in octal digits.
+            long value = header[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = value << 8 | (header[i] & 0xff);
+            }
+            return value;
+        }
+        long value = 0;
+        int i = offset;
+        while (i < offset + length && (header[i] == ' ' || header[i] == 0)) {
+            i++;
+        }
+        for (; i < offset + length && header[i] >= '0' && header[i] <= '7'; i++) {
+            value = value * 8 + (header[i] - '0');
+        }
+        return value;
+    }
+
+    private static Map<String, String> parsePax(byte[] data, int size) {
+        Map<String, String> values = new HashMap<>();
+        int position = 0;
+        while (position < size) {
+            int space = position;
+            while (space < size && data[space] != ' ') {
+                space++;
+            }
+            int length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+            if (length <= 0 || position + length > size) {
+                break;
+            }
+            String record = new String(data, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                values.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            position += length;
+        }
+        return values;
+    }
+
+    private static boolean isZeroBlock(byte[] header) {
+        for (byte b : header) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValidChecksum(byte[] header) {
+        long expected = parseNumber(header, 148, 8);
+        long unsigned = 0;
+        long signed = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            byte b = i >= 148 && i < 156 ? (byte) ' ' : header[i];
+            unsigned += b & 0xff;
+            signed += b;
+        }
+        return expected == unsigned || expected == signed;
+    }
+
+    Entry getEntry(Path path) {
+        checkOpen();
+        Entry entry = path.isAbsolute() ? entries.get(path.toString()) : null;
+        return entry != null ? entry : entries.get(path.toAbsolutePath().normalize().toString());
+    }
+
+    Entry getExistingEntry(Path path) throws NoSuchFileException {
+        Entry entry = getEntry(path);
+        if (entry == null) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return entry;
+    }
+
+    Path readSymbolicLink(Path path) throws IOException {
+        Entry entry = getExistingEntry(path);
+        if (!entry.isSymbolicLink()) {
+            throw new NotLinkException(path.toString());
+        }
+        return getPath(entry.link);
+    }
+
+    DirectoryStream<Path> newDirectoryStream(Path directory, DirectoryStream.Filter<? super Path> filter) throws IOException {
+        Entry entry = getExistingEntry(directory);
+        if (!entry.isDirectory()) {
+            throw new NotDirectoryException(directory.toString());
+        }
+        List<Path> children = new ArrayList<>(entry.children.size());
+        for (String name : entry.children.keySet()) {
+            Path child = directory.resolve(name);
+            if (filter == null || filter.accept(child)) {
+                children.add(child);
+            }
+        }
+        return new DirectoryStream<>() {
+            private boolean iterated;
+
+            @Override
+            public Iterator<Path> iterator() {
+                if (iterated) {
+                    throw new IllegalStateException("Already iterated");
+                }
+                iterated = true;
+                return children.iterator();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    SeekableByteChannel newByteChannel(Path path) throws IOException {
+        Entry entry = getExistingEntry(path);
+        if (entry.isDirectory()) {
+            throw new IOException("Is a directory: " + path);
+        }
+        return new EntryChannel(entry);
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new ClosedFileSystemException();
+        }
+    }
+
+    /**
+     * Reads one entry's data: positional reads from a plain local archive, otherwise a stream that is
+     * decompressed up to the entry and reopened only when asked to go backwards.
+     */
+    private final class EntryChannel implements SeekableByteChannel {
+        private final Entry entry;
+        private final FileChannel file;
+        private InputStream stream;
+        private long position;
+        private boolean channelOpen = true;
+
+        private EntryChannel(Entry entry) throws IOException {
+            this.entry = entry;
+            this.file = seekable ? FileChannel.open(archive, StandardOpenOption.READ) : null;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!channelOpen) {
+                throw new ClosedChannelException();
+            }
+            if (position >= entry.size) {
+                return -1;
+            }
+            int length = (int) Math.min(dst.remaining(), entry.size - position);
+            int read;
+            if (file != null) {
+                ByteBuffer slice = dst.slice(dst.position(), length);
+                read = file.read(slice, entry.offset + position);
+                if (read > 0) {
+                    dst.position(dst.position() + read);
+                }
+            } else {
+                if (stream == null) {
+                    stream = openArchive();
+                    stream.skipNBytes(entry.offset + position);
+                }
+                byte[] buffer = new byte[Math.min(length, 64 * 1024)];
+                read = stream.read(buffer);
+                if (read > 0) {
+                    dst.put(buffer, 0, read);
+                }
+            }
+            if (read <= 0) {
+                throw new EOFException("Truncated TAR archive: " + archive);
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            if (stream != null && newPosition != position) {
+                if (newPosition > position && newPosition <= entry.size) {
+                    stream.skipNBytes(newPosition - position);
+                } else {
+                    stream.close();
+                    stream = null;
+                }
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() {
+            return entry.size;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channelOpen;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channelOpen = false;
+            if (file != null) {
+                file.close();
+            }
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+
+    @Override
+    public TarFileSystemProvider provider() {
+        return provider;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public String getSeparator() {
+        return "/";
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        return List.of(root);
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        try {
+            return List.of(Files.getFileStore(archive));
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return Set.of("basic");
+    }
+
+    @Override
+    public Path getPath(String first, String... more) {
+        StringBuilder path = new StringBuilder(first);
+        for (String name : more) {
+            if (!name.isEmpty()) {
+                path.append('/').append(name);
+            }
+        }
+        return new TarPath(this, path.toString());
+    }
+
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        // Entry paths use the same separator as the paths the default matchers were written for.
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+        return path -> matcher.matches(Path.of(path.toString()));
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException();
+    }
+}
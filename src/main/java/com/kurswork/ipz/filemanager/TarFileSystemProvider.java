@@ -0,0 +1,202 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provider for {@link TarFileSystem}. It is not installed; file systems are opened through
+ * {@link ArchiveFileSystems}, which also turns the "tar:" URIs of their paths back into paths.
+ */
+final class TarFileSystemProvider extends FileSystemProvider {
+    static final String SCHEME = "tar";
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public FileSystem newFileSystem(Path archive, Map<String, ?> env) throws IOException {
+        return new TarFileSystem(this, archive);
+    }
+
+    @Override
+    public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+        throw new UnsupportedOperationException("Open TAR archives by path");
+    }
+
+    @Override
+    public FileSystem getFileSystem(URI uri) {
+        throw new FileSystemNotFoundException(uri.toString());
+    }
+
+    @Override
+    public Path getPath(URI uri) {
+        throw new FileSystemNotFoundException(uri.toString());
+    }
+
+    private static TarPath toTarPath(Path path) {
+        if (!(path instanceof TarPath tarPath)) {
+            throw new ProviderMismatchException();
+        }
+        return tarPath;
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+            throws IOException {
+        for (OpenOption option : options) {
+            if (option != StandardOpenOption.READ && option != LinkOption.NOFOLLOW_LINKS) {
+                throw new ReadOnlyFileSystemException();
+            }
+        }
+        return toTarPath(path).getFileSystem().newByteChannel(path);
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+        return toTarPath(dir).getFileSystem().newDirectoryStream(dir, filter);
+    }
+
+    @Override
+    public Path readSymbolicLink(Path link) throws IOException {
+        return toTarPath(link).getFileSystem().readSymbolicLink(link);
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public void delete(Path path) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public void move(Path source, Path target, CopyOption... options) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) {
+        return path.toAbsolutePath().normalize().equals(path2.toAbsolutePath().normalize());
+    }
+
+    @Override
+    public boolean isHidden(Path path) {
+        return false;
+    }
+
+    @Override
+    public FileStore getFileStore(Path path) throws IOException {
+        return Files.getFileStore(toTarPath(path).getFileSystem().getArchive());
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+        toTarPath(path).getFileSystem().getExistingEntry(path);
+        for (AccessMode mode : modes) {
+            if (mode == AccessMode.WRITE) {
+                throw new ReadOnlyFileSystemException();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+        if (type != BasicFileAttributeView.class) {
+            return null;
+        }
+        TarPath tarPath = toTarPath(path);
+        return (V) new BasicFileAttributeView() {
+            @Override
+            public String name() {
+                return "basic";
+            }
+
+            @Override
+            public BasicFileAttributes readAttributes() throws IOException {
+                return tarPath.getFileSystem().getExistingEntry(tarPath);
+            }
+
+            @Override
+            public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime) {
+                throw new ReadOnlyFileSystemException();
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException {
+        if (!type.isAssignableFrom(TarFileSystem.Entry.class)) {
+            throw new UnsupportedOperationException("Only basic attributes are available in TAR archives");
+        }
+        return (A) toTarPath(path).getFileSystem().getExistingEntry(path);
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+        int colon = attributes.indexOf(':');
+        if (colon >= 0 && !attributes.substring(0, colon).equals("basic")) {
+            throw new UnsupportedOperationException("Only basic attributes are available in TAR archives");
+        }
+        BasicFileAttributes entry = readAttributes(path, BasicFileAttributes.class, options);
+        Map<String, Object> all = new HashMap<>();
+        all.put("size", entry.size());
+        all.put("lastModifiedTime", entry.lastModifiedTime());
+        all.put("lastAccessTime", entry.lastAccessTime());
+        all.put("creationTime", entry.creationTime());
+        all.put("isRegularFile", entry.isRegularFile());
+        all.put("isDirectory", entry.isDirectory());
+        all.put("isSymbolicLink", entry.isSymbolicLink());
+        all.put("isOther", entry.isOther());
+        all.put("fileKey", entry.fileKey());
+        Map<String, Object> selected = new HashMap<>();
+        for (String name : attributes.substring(colon + 1).split(",")) {
+            if (name.equals("*")) {
+                selected.putAll(all);
+            } else if (all.containsKey(name)) {
+                selected.put(name, all.get(name));
+            } else {
+                throw new IllegalArgumentException("Unknown attribute: " + name);
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+        throw new ReadOnlyFileSystemException();
+    }
+}
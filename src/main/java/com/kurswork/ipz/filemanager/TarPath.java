@@ -0,0 +1,237 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A '/'-separated path inside a {@link TarFileSystem}.
+ */
+final class TarPath implements Path {
+    private final TarFileSystem fileSystem;
+    private final String path;
+    private String[] names;
+
+    TarPath(TarFileSystem fileSystem, String path) {
+        this.fileSystem = fileSystem;
+        this.path = clean(path);
+    }
+
+    private static String clean(String path) {
+        StringBuilder cleaned = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '/' || cleaned.isEmpty() || cleaned.charAt(cleaned.length() - 1) != '/') {
+                cleaned.append(c);
+            }
+        }
+        if (cleaned.length() > 1 && cleaned.charAt(cleaned.length() - 1) == '/') {
+            cleaned.setLength(cleaned.length() - 1);
+        }
+        return cleaned.toString();
+    }
+
+    private String[] names() {
+        if (names == null) {
+            if (path.equals("/")) {
+                names = new String[0];
+            } else {
+                names = (isAbsolute() ? path.substring(1) : path).split("/", -1);
+            }
+        }
+        return names;
+    }
+
+    private TarPath of(String path) {
+        return new TarPath(fileSystem, path);
+    }
+
+    private TarPath toTarPath(Path other) {
+        if (!(other instanceof TarPath tarPath) || tarPath.fileSystem != fileSystem) {
+            throw new ProviderMismatchException();
+        }
+        return tarPath;
+    }
+
+    @Override
+    public TarFileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return path.startsWith("/");
+    }
+
+    @Override
+    public Path getRoot() {
+        return isAbsolute() ? of("/") : null;
+    }
+
+    @Override
+    public Path getFileName() {
+        String[] names = names();
+        if (names.length == 0) {
+            return null;
+        }
+        return names.length == 1 && !isAbsolute() ? this : of(names[names.length - 1]);
+    }
+
+    @Override
+    public Path getParent() {
+        int separator = path.lastIndexOf('/');
+        if (names().length == 0 || separator < 0) {
+            return null;
+        }
+        return of(separator == 0 ? "/" : path.substring(0, separator));
+    }
+
+    @Override
+    public int getNameCount() {
+        return names().length;
+    }
+
+    @Override
+    public Path getName(int index) {
+        return of(names()[index]);
+    }
+
+    @Override
+    public Path subpath(int beginIndex, int endIndex) {
+        if (beginIndex < 0 || endIndex > names().length || beginIndex >= endIndex) {
+            throw new IllegalArgumentException();
+        }
+        return of(String.join("/", Arrays.asList(names()).subList(beginIndex, endIndex)));
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+        if (!(other instanceof TarPath tarPath) || tarPath.fileSystem != fileSystem || tarPath.isAbsolute() != isAbsolute()) {
+            return false;
+        }
+        String[] prefix = tarPath.names();
+        return prefix.length <= names().length && Arrays.equals(names(), 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+        if (!(other instanceof TarPath tarPath) || tarPath.fileSystem != fileSystem) {
+            return false;
+        }
+        if (tarPath.isAbsolute()) {
+            return equals(tarPath);
+        }
+        String[] suffix = tarPath.names();
+        int from = names().length - suffix.length;
+        return from >= 0 && Arrays.equals(names(), from, names().length, suffix, 0, suffix.length);
+    }
+
+    @Override
+    public Path normalize() {
+        List<String> normalized = new ArrayList<>();
+        for (String name : names()) {
+            if (name.isEmpty() || name.equals(".")) {
+                continue;
+            }
+            if (name.equals("..") && !normalized.isEmpty() && !normalized.get(normalized.size() - 1).equals("..")) {
+                normalized.remove(normalized.size() - 1);
+            } else if (!name.equals("..") || !isAbsolute()) {
+                normalized.add(name);
+            }
+        }
+        return of((isAbsolute() ? "/" : "") + String.join("/", normalized));
+    }
+
+    @Override
+    public Path resolve(Path other) {
+        TarPath tarPath = toTarPath(other);
+        if (tarPath.isAbsolute() || path.isEmpty()) {
+            return tarPath;
+        }
+        if (tarPath.path.isEmpty()) {
+            return this;
+        }
+        return of(path.equals("/") ? "/" + tarPath.path : path + "/" + tarPath.path);
+    }
+
+    @Override
+    public Path relativize(Path other) {
+        TarPath tarPath = toTarPath(other);
+        if (tarPath.isAbsolute() != isAbsolute()) {
+            throw new IllegalArgumentException("Only paths of the same kind can be relativized");
+        }
+        String[] from = names();
+        String[] to = tarPath.names();
+        int common = 0;
+        while (common < from.length && common < to.length && from[common].equals(to[common])) {
+            common++;
+        }
+        List<String> relative = new ArrayList<>();
+        for (int i = common; i < from.length; i++) {
+            relative.add("..");
+        }
+        relative.addAll(Arrays.asList(to).subList(common, to.length));
+        return of(String.join("/", relative));
+    }
+
+    @Override
+    public URI toUri() {
+        URI archive = fileSystem.getArchive().toUri();
+        try {
+            // The same "<archive uri>!<entry>" form the ZIP provider uses, so both decode the same way.
+            return new URI(TarFileSystemProvider.SCHEME, archive.getScheme() + ":" + archive.getSchemeSpecificPart()
+                    + "!" + toAbsolutePath(), null);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Path toAbsolutePath() {
+        return isAbsolute() ? this : of("/" + path);
+    }
+
+    @Override
+    public Path toRealPath(LinkOption... options) throws IOException {
+        Path real = toAbsolutePath().normalize();
+        if (fileSystem.getEntry(real) == null) {
+            throw new NoSuchFileException(toString());
+        }
+        return real;
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException("Archives cannot be watched");
+    }
+
+    @Override
+    public int compareTo(Path other) {
+        return path.compareTo(toTarPath(other).path);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TarPath tarPath && tarPath.fileSystem == fileSystem && tarPath.path.equals(path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
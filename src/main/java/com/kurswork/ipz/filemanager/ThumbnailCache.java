@@ -0,0 +1,213 @@
+package com.kurswork.ipz.filemanager;
+
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class ThumbnailCache {
+    public static final int SIZE = 48;
+    private static final int MAX_IMAGES = 512;
+    // The disk cache is trimmed to three quarters of this, least recently used thumbnails first.
+    private static final long MAX_DISK_BYTES = 64L * 1024 * 1024;
+    private static final Set<String> EXTENSIONS = Set.of("png", "jpg", "jpeg", "gif", "bmp");
+
+    private final Path directory;
+    // Only touched on the FX thread, like IconCache.
+    private final Map<String, Image> images = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > MAX_IMAGES;
+        }
+    };
+    private final LinkedBlockingDeque<Request> queue = new LinkedBlockingDeque<>();
+    private final FxUpdates fxUpdates = new FxUpdates();
+    private final AtomicBoolean swept = new AtomicBoolean();
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private record Cached(Path path, long size, FileTime used) {
+    }
+
+    public ThumbnailCache(Path directory, int workers) {
+        this.directory = directory;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::runWorker, "thumbnail-loader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public static boolean supports(FileInfo fileInfo) {
+        if (fileInfo.getType() != FileInfo.FileType.FILE) {
+            return false;
+        }
+        String filename = fileInfo.getFilename();
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 && EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Delivers the thumbnail to the consumer on the FX thread. Returns null when it was already in memory,
+     * otherwise a request the caller cancels once the row scrolls out of view.
+     */
+    public Request request(Path path, FileInfo fileInfo, Consumer<Image> consumer) {
+        String key = path + "|" + fileInfo.getLastModifiedMillis() + "|" + fileInfo.getSize();
+        Image image = images.get(key);
+        if (image != null) {
+            consumer.accept(image);
+            return null;
+        }
+        Request request = new Request(key, path, consumer, queue);
+        queue.addLast(request);
+        return request;
+    }
+
+    private void runWorker() {
+        // Whichever worker starts first measures what earlier sessions left on disk.
+        if (swept.compareAndSet(false, true)) {
+            sweep();
+        }
+        while (true) {
+            Request request;
+            try {
+                // Newest first: the rows the user is looking at now were requested last.
+                request = queue.takeLast();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (request.cancelled) {
+                continue;
+            }
+            Image image = load(request);
+            if (image == null) {
+                continue;
+            }
+            // Decoded thumbnails reach the FX thread together, one pulse per burst of visible rows.
+            fxUpdates.post(() -> {
+                images.put(request.key, image);
+                if (!request.cancelled) {
+                    request.consumer.accept(image);
+                }
+            });
+        }
+    }
+
+    private Image load(Request request) {
+        Path cached = directory.resolve(UUID.nameUUIDFromBytes(request.key.getBytes(StandardCharsets.UTF_8)) + ".png");
+        if (Files.isRegularFile(cached)) {
+            Image image = new Image(cached.toUri().toString());
+            if (!image.isError()) {
+                try {
+                    // The modification time doubles as the last use, which the sweep goes by.
+                    Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+                } catch (IOException e) {
+                    // The thumbnail is only swept a little earlier than it would have been.
+                }
+                return image;
+            }
+        }
+        Image image = new Image(request.path.toUri().toString(), SIZE, SIZE, true, true);
+        if (image.isError()) {
+            return null;
+        }
+        try {
+            Files.createDirectories(directory);
+            store(image, cached);
+        } catch (IOException e) {
+            // The thumbnail is still shown; it will just be decoded again next time.
+        }
+        return image;
+    }
+
+    private void store(Image image, Path cached) throws IOException {
+        Path temp = Files.createTempFile(directory, "thumb", ".tmp");
+        try {
+            ImageIO.write(SwingFXUtils.fromFXImage(image, null), "png", temp.toFile());
+            long size = Files.size(temp);
+            Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.addAndGet(size) > MAX_DISK_BYTES) {
+                sweep();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Deletes the least recently used thumbnails until the disk cache is back under its limit.
+     */
+    private synchronized void sweep() {
+        List<Cached> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.png")) {
+            for (Path entry : entries) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    files.add(new Cached(entry, attributes.size(), attributes.lastModifiedTime()));
+                    total += attributes.size();
+                } catch (IOException e) {
+                    // Another worker may have just replaced it; it is counted on the next sweep.
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // No cache directory yet, so there is nothing to trim.
+        }
+        if (total > MAX_DISK_BYTES) {
+            files.sort(Comparator.comparing(Cached::used));
+            for (int i = 0; i < files.size() && total > MAX_DISK_BYTES / 4 * 3; i++) {
+                try {
+                    Files.deleteIfExists(files.get(i).path());
+                    total -= files.get(i).size();
+                } catch (IOException e) {
+                    // A file that cannot be deleted now is tried again on the next sweep.
+                }
+            }
+        }
+        diskBytes.set(total);
+    }
+
+    public static class Request {
+        private final String key;
+        private final Path path;
+        private final Consumer<Image> consumer;
+        private final LinkedBlockingDeque<Request> queue;
+        private volatile boolean cancelled;
+
+        private Request(String key, Path path, Consumer<Image> consumer, LinkedBlockingDeque<Request> queue) {
+            this.key = key;
+            this.path = path;
+            this.consumer = consumer;
+            this.queue = queue;
+        }
+
+        /**
+         * Drops the request from the queue, so rows scrolled past do not pile up behind the visible ones.
+         */
+        public void cancel() {
+            cancelled = true;
+            // Searched from the newest end, where the rows that just scrolled away were queued.
+            queue.removeLastOccurrence(this);
+        }
+    }
+}
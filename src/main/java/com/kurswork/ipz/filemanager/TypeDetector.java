@@ -0,0 +1,12 @@
+package com.kurswork.ipz.filemanager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@FunctionalInterface
+public interface TypeDetector {
+    /**
+     * Returns the MIME type of the file, or null if this detector cannot tell.
+     */
+    String detect(Path path) throws IOException;
+}
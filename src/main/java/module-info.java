@@ -2,6 +2,7 @@ module com.test.demo {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.web;
+    requires javafx.swing;
 
     requires org.controlsfx.controls;
     requires com.dlsc.formsfx;
@@ -12,6 +13,9 @@ module com.test.demo {
     requires com.almasb.fxgl.all;
     requires javafx.media;
     requires java.desktop;
+    requires java.management;
+    requires jdk.jfr;
+    requires jdk.zipfs;
 
     opens com.kurswork.ipz.filemanager to javafx.fxml;
     exports com.kurswork.ipz.filemanager;
@@ -0,0 +1,72 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContentMatcherTest {
+    @Test
+    void literalIsFoundAtEveryPosition() {
+        ContentMatcher matcher = ContentMatcher.parse("abcab");
+        String text = "xxabcabxx";
+
+        assertEquals(2, find(matcher, text));
+        assertEquals(0, find(matcher, "abcab"));
+        assertEquals(4, find(matcher, "abcaabcab"));
+        assertEquals(-1, find(matcher, "abcaXcab"));
+        assertEquals(-1, find(matcher, "abca"));
+    }
+
+    @Test
+    void shiftsDoNotSkipOverlappingCandidates() {
+        // Horspool shifts by the last byte of the window; repeated bytes must not jump past a match.
+        ContentMatcher matcher = ContentMatcher.parse("aab");
+
+        assertEquals(7, find(matcher, "aaaaaaaaab"));
+        assertEquals(1, find(ContentMatcher.parse("abab"), "xababab"));
+        assertEquals(3, find(ContentMatcher.parse("a"), "bbba"));
+    }
+
+    @Test
+    void searchStaysInsideTheRange() {
+        ContentMatcher matcher = ContentMatcher.parse("needle");
+        ByteBuffer buffer = buffer("needle..needle..");
+
+        assertEquals(8, matcher.find(buffer, 1, buffer.limit()));
+        assertEquals(-1, matcher.find(buffer, 1, 13));
+        assertEquals(8, matcher.find(buffer, 8, 14));
+        assertEquals(-1, matcher.find(buffer, 9, 16));
+    }
+
+    @Test
+    void utf8LiteralsMatchRawBytes() {
+        ContentMatcher matcher = ContentMatcher.parse("пошук");
+        String text = "текст для пошуку";
+
+        assertEquals("текст для ".getBytes(StandardCharsets.UTF_8).length, find(matcher, text));
+    }
+
+    @Test
+    void regexReportsTheByteOffsetOfItsLine() {
+        ContentMatcher matcher = ContentMatcher.parse("re:рядок [2-9]");
+        String text = "рядок 1\nрядок 2\n";
+
+        assertEquals("рядок 1\n".getBytes(StandardCharsets.UTF_8).length, find(matcher, text));
+        assertEquals(0, find(ContentMatcher.parse("re:^ряд"), text));
+        assertEquals(-1, find(ContentMatcher.parse("re:^1"), text));
+    }
+
+    private static int find(ContentMatcher matcher, String text) {
+        ByteBuffer buffer = buffer(text);
+        return matcher.find(buffer, 0, buffer.limit());
+    }
+
+    private static ByteBuffer buffer(String text) {
+        // A direct buffer, like the ones content search reads into.
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+}
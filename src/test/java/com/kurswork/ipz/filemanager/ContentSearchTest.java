@@ -0,0 +1,79 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentSearchTest {
+    // The size of the buffer each file is read through.
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final String NEEDLE = "needle-in-a-haystack";
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void findsMatchesThatStraddleTheBufferBoundary() throws IOException {
+        StringBuilder text = new StringBuilder();
+        long lines = 0;
+        while (text.length() < BUFFER_SIZE - NEEDLE.length() / 2 - 10) {
+            text.append("line ").append(lines++).append('\n');
+        }
+        long offset = text.length() + 10;
+        text.append("0123456789").append(NEEDLE).append(" tail\n");
+        text.append("after\n".repeat(1000));
+        Files.writeString(temp.resolve("big.txt"), text);
+        assertTrue(offset < BUFFER_SIZE && offset + NEEDLE.length() > BUFFER_SIZE);
+
+        List<ContentHit> hits = search(NEEDLE);
+
+        assertEquals(1, hits.size());
+        assertEquals(offset, hits.get(0).offset());
+        assertEquals(lines + 1, hits.get(0).line());
+        assertEquals("0123456789" + NEEDLE + " tail", hits.get(0).text());
+    }
+
+    @Test
+    void findsMatchesThatStraddleTheBoundaryOfALineLongerThanTheBuffer() throws IOException {
+        StringBuilder text = new StringBuilder("x".repeat(BUFFER_SIZE - NEEDLE.length() / 2));
+        long offset = text.length();
+        text.append(NEEDLE).append("x".repeat(BUFFER_SIZE)).append('\n');
+        Files.writeString(temp.resolve("long-line.txt"), text);
+
+        List<ContentHit> hits = search(NEEDLE);
+
+        assertEquals(1, hits.size());
+        assertEquals(offset, hits.get(0).offset());
+        assertEquals(1, hits.get(0).line());
+    }
+
+    @Test
+    void countsLinesAndReportsOneHitPerLine() throws IOException {
+        Files.writeString(temp.resolve("a.txt"), "перший рядок\nтут ціль і ще ціль\n\nостанній: ціль", StandardCharsets.UTF_8);
+        Files.write(temp.resolve("binary.bin"), new byte[]{'c', 0, 'c'});
+
+        List<ContentHit> hits = search("ціль");
+
+        assertEquals(List.of(2L, 4L), hits.stream().map(ContentHit::line).toList());
+        assertEquals("перший рядок\nтут ".getBytes(StandardCharsets.UTF_8).length, hits.get(0).offset());
+        assertEquals("останній: ціль", hits.get(1).text());
+    }
+
+    private List<ContentHit> search(String query) throws IOException {
+        List<ContentHit> hits = Collections.synchronizedList(new ArrayList<>());
+        new ContentSearch(2).search(temp, ContentMatcher.parse(query), () -> false, hits::add);
+        List<ContentHit> sorted = new ArrayList<>(hits);
+        sorted.sort((a, b) -> Long.compare(a.offset(), b.offset()));
+        return sorted;
+    }
+}
@@ -0,0 +1,83 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CopyEngineTest {
+    // Above the size that is left to Files.copy, so the chunked copy is used.
+    private static final int LARGE = 3 * 1024 * 1024;
+
+    private static CopyEngine engine;
+
+    @TempDir
+    Path temp;
+
+    @BeforeAll
+    static void startEngine() {
+        engine = new CopyEngine(2);
+    }
+
+    @Test
+    void copyingALargeFileOntoItselfLeavesItIntact() throws IOException {
+        byte[] contents = randomBytes(LARGE, 1);
+        Path file = Files.write(temp.resolve("large.bin"), contents);
+
+        copy(file, file);
+
+        assertArrayEquals(contents, Files.readAllBytes(file));
+        assertEquals(List.of(file), list(temp));
+    }
+
+    @Test
+    void copyingALargeFileThroughAnotherPathLeavesItIntact() throws IOException {
+        byte[] contents = randomBytes(LARGE, 2);
+        Path file = Files.write(Files.createDirectories(temp.resolve("dir")).resolve("large.bin"), contents);
+
+        copy(file, temp.resolve("dir/../dir/large.bin"));
+
+        assertArrayEquals(contents, Files.readAllBytes(file));
+    }
+
+    @Test
+    void largeCopyReplacesTheTargetAndLeavesNoTemporaryFile() throws IOException {
+        byte[] contents = randomBytes(LARGE + 5, 3);
+        Path source = Files.write(Files.createDirectories(temp.resolve("source")).resolve("large.bin"), contents);
+        Path target = Files.write(Files.createDirectories(temp.resolve("target")).resolve("large.bin"), new byte[]{1, 2, 3});
+
+        copy(source, target);
+
+        assertArrayEquals(contents, Files.readAllBytes(target));
+        assertEquals(Files.getLastModifiedTime(source), Files.getLastModifiedTime(target));
+        assertEquals(List.of(target), list(target.getParent()));
+    }
+
+    private static void copy(Path source, Path target) {
+        OperationProgress progress = new OperationProgress();
+        engine.copy(source, target, progress).join();
+        assertFalse(progress.hasFailures(), () -> String.join("\n", progress.getFailures()));
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.toList();
+        }
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
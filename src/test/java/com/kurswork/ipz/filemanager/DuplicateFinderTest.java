@@ -0,0 +1,104 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateFinderTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    void groupsIdenticalFilesAndSkipsEmptyOnes() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("root"));
+        byte[] contents = randomBytes(DuplicateFinder.EDGE_SIZE * 5, 1);
+        Files.write(root.resolve("a.bin"), contents);
+        Files.write(Files.createDirectories(root.resolve("sub")).resolve("b.bin"), contents);
+        Files.writeString(root.resolve("small1.txt"), "однаковий");
+        Files.writeString(root.resolve("small2.txt"), "однаковий");
+        Files.createFile(root.resolve("empty1"));
+        Files.createFile(root.resolve("empty2"));
+
+        List<DuplicateGroup> groups = find(root);
+
+        assertEquals(2, groups.size());
+        // The most wasted space comes first.
+        assertEquals(Set.of(root.resolve("a.bin"), root.resolve("sub/b.bin")), new HashSet<>(groups.get(0).files()));
+        assertEquals(contents.length, groups.get(0).size());
+        assertEquals(Set.of(root.resolve("small1.txt"), root.resolve("small2.txt")), new HashSet<>(groups.get(1).files()));
+    }
+
+    @Test
+    void separatesFilesThatDifferOnlyInTheMiddle() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("root"));
+        byte[] contents = randomBytes(DuplicateFinder.EDGE_SIZE * 4, 2);
+        Files.write(root.resolve("original.bin"), contents);
+        byte[] changed = Arrays.copyOf(contents, contents.length);
+        changed[contents.length / 2] ^= 1;
+        Files.write(root.resolve("changed.bin"), changed);
+
+        assertTrue(find(root).isEmpty());
+    }
+
+    @Test
+    void countsHardLinksToOneFileOnce() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("root"));
+        byte[] contents = randomBytes(DuplicateFinder.EDGE_SIZE * 3, 3);
+        Path file = Files.write(root.resolve("file.bin"), contents);
+        Files.createLink(root.resolve("link.bin"), file);
+
+        assertTrue(find(root).isEmpty(), "a file and its hard link take no extra space");
+
+        Path copy = Files.write(root.resolve("copy.bin"), contents);
+        List<DuplicateGroup> groups = find(root);
+        assertEquals(1, groups.size());
+        assertEquals(2, groups.get(0).files().size());
+        assertTrue(groups.get(0).files().contains(copy));
+    }
+
+    @Test
+    void reusesCachedHashesUntilTheFileChanges() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("root"));
+        byte[] contents = randomBytes(DuplicateFinder.EDGE_SIZE * 3, 4);
+        Files.write(root.resolve("a.bin"), contents);
+        Path b = Files.write(root.resolve("b.bin"), contents);
+        Path cacheFile = temp.resolve("hashes.cache");
+        assertEquals(1, find(root, cacheFile).size());
+        assertTrue(Files.isRegularFile(cacheFile));
+
+        byte[] changed = Arrays.copyOf(contents, contents.length);
+        changed[contents.length / 2] ^= 1;
+        Files.write(b, changed);
+        Files.setLastModifiedTime(b, FileTime.fromMillis(Files.getLastModifiedTime(b).toMillis() + 2000));
+
+        assertTrue(find(root, cacheFile).isEmpty(), "a changed file is hashed again");
+    }
+
+    private List<DuplicateGroup> find(Path root) throws IOException {
+        return find(root, temp.resolve("hashes.cache"));
+    }
+
+    private static List<DuplicateGroup> find(Path root, Path cacheFile) throws IOException {
+        DuplicateFinder finder = new DuplicateFinder(new IoScheduler(2), new HashCache(cacheFile), 2);
+        return finder.find(root, () -> false, (stage, done, total) -> {
+        });
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,124 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileInfoColumnsTest {
+    @Test
+    void rowsGrowPastTheInitialCapacity() {
+        FileInfoColumns columns = new FileInfoColumns(1);
+        for (int i = 0; i < 200; i++) {
+            columns.add("файл-" + i + ".txt", FileInfo.FileType.FILE, i, 1000L + i);
+        }
+
+        assertEquals(200, columns.size());
+        assertEquals("файл-137.txt", columns.getFilename(137));
+        assertEquals(137, columns.getSize(137));
+        assertEquals(1137, columns.getLastModified(137));
+        assertEquals(137, columns.indexOf("файл-137.txt"));
+        assertEquals(-1, columns.indexOf("файл-200.txt"));
+        assertEquals(Map.of("файл-3.txt", 3, "файл-199.txt", 199),
+                columns.indexesOf(List.of("файл-3.txt", "файл-199.txt", "немає")));
+    }
+
+    @Test
+    void removeAllKeepsTheOtherRowsInOrder() {
+        FileInfoColumns columns = create("a", "бб", "c", "ддд", "e");
+        BitSet removed = new BitSet();
+        removed.set(0);
+        removed.set(3);
+
+        columns.removeAll(removed);
+
+        assertEquals(3, columns.size());
+        assertEquals(List.of("бб", "c", "e"), names(columns));
+        assertEquals(FileInfo.FileType.FILE, columns.getType(0));
+        assertEquals(4, columns.getSize(2));
+        // Names are packed again, so new rows land right after the kept ones.
+        columns.add("f", FileInfo.FileType.DIRECTORY, 0, 0);
+        assertEquals(List.of("бб", "c", "e", "f"), names(columns));
+    }
+
+    @Test
+    void selectCopiesRowsInTheGivenOrder() {
+        FileInfoColumns columns = create("a", "бб", "c", "ддд");
+
+        FileInfoColumns selection = columns.select(new int[]{3, 0, 2, 99}, 3);
+
+        assertEquals(List.of("ддд", "a", "c"), names(selection));
+        assertEquals(3, selection.getSize(0));
+        assertEquals(FileInfo.FileType.DIRECTORY, selection.getType(1));
+        assertEquals(4, columns.size(), "the source is left as it was");
+    }
+
+    @Test
+    void binaryFormatRoundTrips() {
+        FileInfoColumns columns = create("a", "", "назва з пробілами", "ддд");
+        ByteBuffer buffer = write(columns);
+
+        FileInfoColumns read = FileInfoColumns.read(buffer);
+
+        assertEquals(0, buffer.remaining(), "read consumes exactly what write produced");
+        assertEquals(names(columns), names(read));
+        for (int i = 0; i < columns.size(); i++) {
+            assertEquals(columns.getType(i), read.getType(i));
+            assertEquals(columns.getSize(i), read.getSize(i));
+            assertEquals(columns.getLastModified(i), read.getLastModified(i));
+        }
+        assertEquals(0, FileInfoColumns.read(write(new FileInfoColumns())).size());
+    }
+
+    @Test
+    void readRejectsCorruptedColumns() {
+        FileInfoColumns columns = create("a", "бб", "c");
+        int nameLength = write(columns).getInt(4);
+        int offsetsStart = 8 + nameLength;
+        int typesStart = offsetsStart + 4 * 4;
+
+        assertCorrupted(write(columns).putInt(0, -1));
+        assertCorrupted(write(columns).putInt(0, Integer.MAX_VALUE));
+        assertCorrupted(write(columns).putInt(4, -1));
+        assertCorrupted(write(columns).putInt(4, 1 << 30));
+        // Offsets must start at zero, never go backwards and end at the name length.
+        assertCorrupted(write(columns).putInt(offsetsStart, 1));
+        assertCorrupted(write(columns).putInt(offsetsStart + 8, 0));
+        assertCorrupted(write(columns).putInt(offsetsStart + 12, nameLength - 1));
+        assertCorrupted(write(columns).put(typesStart, (byte) FileInfo.FileType.values().length));
+        assertCorrupted(write(columns).put(typesStart, (byte) -1));
+        ByteBuffer truncated = write(columns);
+        assertThrows(RuntimeException.class, () -> FileInfoColumns.read(truncated.limit(truncated.limit() - 1)));
+    }
+
+    private static void assertCorrupted(ByteBuffer buffer) {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> FileInfoColumns.read(buffer));
+        assertTrue(e instanceof IllegalArgumentException || e instanceof BufferUnderflowException, e.toString());
+    }
+
+    private static FileInfoColumns create(String... names) {
+        FileInfoColumns columns = new FileInfoColumns();
+        for (int i = 0; i < names.length; i++) {
+            FileInfo.FileType type = i % 2 == 0 ? FileInfo.FileType.DIRECTORY : FileInfo.FileType.FILE;
+            columns.add(names[i], type, i, 1_700_000_000_000L + i);
+        }
+        return columns;
+    }
+
+    private static ByteBuffer write(FileInfoColumns columns) {
+        ByteBuffer buffer = ByteBuffer.allocate(columns.byteSize());
+        columns.write(buffer);
+        return buffer.flip();
+    }
+
+    private static List<String> names(FileInfoColumns columns) {
+        return columns.asList().stream().map(FileInfo::getFilename).toList();
+    }
+}
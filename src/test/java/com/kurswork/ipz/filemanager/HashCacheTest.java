@@ -0,0 +1,88 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HashCacheTest {
+    private static final byte[] PARTIAL = {1, 2, 3};
+    private static final byte[] FULL = {4, 5, 6, 7};
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void savedHashesLoadBack() throws IOException {
+        Path file = temp.resolve("hashes.cache");
+        Path path = temp.resolve("a.bin");
+        HashCache cache = new HashCache(file);
+        cache.load();
+        cache.putPartial(path, 10, 100, PARTIAL);
+        cache.putFull(path, 10, 100, FULL);
+        cache.save();
+
+        HashCache loaded = new HashCache(file);
+        loaded.load();
+        assertArrayEquals(PARTIAL, loaded.getPartial(path, 10, 100));
+        assertArrayEquals(FULL, loaded.getFull(path, 10, 100));
+    }
+
+    @Test
+    void hashesAreDroppedWhenSizeOrTimeChanges() {
+        HashCache cache = new HashCache(temp.resolve("hashes.cache"));
+        Path path = temp.resolve("a.bin");
+        cache.putPartial(path, 10, 100, PARTIAL);
+
+        assertNull(cache.getPartial(path, 11, 100));
+        assertNull(cache.getPartial(path, 10, 101));
+        assertNull(cache.getFull(path, 10, 100));
+        // A new hash for another version replaces the old entry altogether.
+        cache.putFull(path, 11, 100, FULL);
+        assertNull(cache.getPartial(path, 11, 100));
+        assertNull(cache.getPartial(path, 10, 100));
+    }
+
+    @Test
+    void retainForgetsOnlyMissingFilesUnderTheRoot() throws IOException {
+        Path file = temp.resolve("hashes.cache");
+        Path root = temp.resolve("root");
+        Path kept = root.resolve("kept.bin");
+        Path gone = root.resolve("gone.bin");
+        Path sibling = temp.resolve("root-sibling").resolve("other.bin");
+        Path outside = temp.resolve("outside.bin");
+        HashCache cache = new HashCache(file);
+        for (Path path : new Path[]{kept, gone, sibling, outside}) {
+            cache.putFull(path, 1, 1, FULL);
+        }
+
+        cache.retain(root, Set.of(kept.toString()));
+        cache.save();
+        HashCache loaded = new HashCache(file);
+        loaded.load();
+
+        assertNotNull(loaded.getFull(kept, 1, 1));
+        assertNull(loaded.getFull(gone, 1, 1));
+        // Only paths inside the root are affected, not ones that merely share its name as a prefix.
+        assertNotNull(loaded.getFull(sibling, 1, 1));
+        assertNotNull(loaded.getFull(outside, 1, 1));
+    }
+
+    @Test
+    void damagedFileLoadsAsEmpty() throws IOException {
+        Path file = temp.resolve("hashes.cache");
+        Files.write(file, new byte[]{0x49, 0x50, 0x5a, 0x48, 0, 0, 0, 1, 0, 0, 0, 5, 0});
+
+        HashCache cache = new HashCache(file);
+        cache.load();
+
+        assertNull(cache.getFull(temp.resolve("a.bin"), 1, 1));
+    }
+}
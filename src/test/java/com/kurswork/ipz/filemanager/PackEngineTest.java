@@ -0,0 +1,146 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackEngineTest {
+    // Together longer than the 100 bytes a tar header holds; ASCII, since the test JVM's file name encoding varies.
+    private static final String LONG_DIRECTORY = "directory-with-a-rather-long-name-".repeat(2);
+    private static final String LONG_FILE = "file-whose-path-does-not-fit-a-tar-header.txt";
+
+    private static PackEngine engine;
+
+    @TempDir
+    Path temp;
+
+    @BeforeAll
+    static void startEngine() {
+        engine = new PackEngine(2);
+    }
+
+    @Test
+    void zipReadsBackWithZipFileAndZipInputStream() throws IOException {
+        Path source = createTree();
+        Path archive = pack(source, "tree.zip");
+
+        try (ZipFile zip = new ZipFile(archive.toFile(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, byte[]> file : expectedFiles(source).entrySet()) {
+                ZipEntry entry = zip.getEntry(file.getKey());
+                assertNotNull(entry, file.getKey());
+                try (InputStream in = zip.getInputStream(entry)) {
+                    assertArrayEquals(file.getValue(), in.readAllBytes(), file.getKey());
+                }
+            }
+            assertNotNull(zip.getEntry("tree/" + LONG_DIRECTORY + "/"));
+        }
+
+        Map<String, byte[]> streamed = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(archive), StandardCharsets.UTF_8)) {
+            for (ZipEntry entry; (entry = in.getNextEntry()) != null; ) {
+                if (!entry.isDirectory()) {
+                    streamed.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+        Map<String, byte[]> expected = expectedFiles(source);
+        if (Files.isSymbolicLink(source.resolve("link"))) {
+            // A link is stored as an entry holding its target.
+            expected.put("tree/link", "big.bin".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(expected.keySet(), streamed.keySet());
+        expected.forEach((name, contents) -> assertArrayEquals(contents, streamed.get(name), name));
+    }
+
+    @Test
+    void tarGzReadsBackWithGzipAndTarFileSystem() throws IOException {
+        Path source = createTree();
+        Path archive = pack(source, "tree.tar.gz");
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            long length = in.transferTo(OutputStream.nullOutputStream());
+            assertEquals(0, length % 512, "a tar stream is made of whole blocks");
+        }
+
+        Path root = ArchiveFileSystems.open(archive);
+        for (Map.Entry<String, byte[]> file : expectedFiles(source).entrySet()) {
+            Path entry = root.resolve(file.getKey());
+            assertTrue(Files.isRegularFile(entry), file.getKey());
+            assertArrayEquals(file.getValue(), Files.readAllBytes(entry), file.getKey());
+        }
+        assertTrue(Files.isDirectory(root.resolve("tree/" + LONG_DIRECTORY)));
+        if (Files.isSymbolicLink(source.resolve("link"))) {
+            Path link = root.resolve("tree/link");
+            assertTrue(Files.isSymbolicLink(link));
+            assertEquals("big.bin", Files.readSymbolicLink(link).toString());
+        }
+    }
+
+    @Test
+    void failedPackLeavesNoArchive() {
+        Path missing = temp.resolve("missing");
+        Path archive = temp.resolve("missing.zip");
+        OperationProgress progress = new OperationProgress();
+
+        engine.pack(missing, archive, progress).join();
+
+        assertTrue(progress.hasFailures());
+        assertFalse(Files.exists(archive.resolveSibling("missing.zip.part")));
+    }
+
+    private Path pack(Path source, String name) {
+        Path archive = temp.resolve(name);
+        OperationProgress progress = new OperationProgress();
+        engine.pack(source, archive, progress).join();
+        assertFalse(progress.hasFailures(), () -> String.join("\n", progress.getFailures()));
+        assertTrue(Files.isRegularFile(archive));
+        return archive;
+    }
+
+    private Path createTree() throws IOException {
+        Path source = Files.createDirectories(temp.resolve("tree"));
+        byte[] big = new byte[PackEngine.CHUNK_SIZE * 3 + 17];
+        new Random(42).nextBytes(big);
+        Files.write(source.resolve("big.bin"), big);
+        // Repeated text compresses well, so the deflated chunks differ in size from the random ones.
+        Files.writeString(source.resolve("text.txt"), "рядок тексту\n".repeat(PackEngine.CHUNK_SIZE / 8));
+        Files.createFile(source.resolve("empty.txt"));
+        Path deep = Files.createDirectories(source.resolve(LONG_DIRECTORY));
+        Files.writeString(deep.resolve(LONG_FILE), "довга назва");
+        try {
+            Files.createSymbolicLink(source.resolve("link"), Path.of("big.bin"));
+        } catch (IOException | UnsupportedOperationException e) {
+            // Without symlink support the rest of the tree is still checked.
+        }
+        return source;
+    }
+
+    private static Map<String, byte[]> expectedFiles(Path source) throws IOException {
+        Map<String, byte[]> files = new HashMap<>();
+        for (String name : new String[]{"big.bin", "text.txt", "empty.txt", LONG_DIRECTORY + "/" + LONG_FILE}) {
+            files.put("tree/" + name, Files.readAllBytes(source.resolve(name)));
+        }
+        assertTrue(("tree/" + LONG_DIRECTORY + "/" + LONG_FILE).getBytes(StandardCharsets.UTF_8).length > 100);
+        return files;
+    }
+}
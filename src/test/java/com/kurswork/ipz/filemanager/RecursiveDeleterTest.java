@@ -0,0 +1,70 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecursiveDeleterTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    void deletesAWholeTree() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("root/a/b/c"));
+        Files.write(root.resolve("deep.txt"), new byte[]{1});
+        Files.createDirectories(temp.resolve("root/empty"));
+        Files.write(temp.resolve("root/top.txt"), new byte[]{2});
+        Path outside = Files.write(temp.resolve("outside.txt"), new byte[]{3});
+        Files.createSymbolicLink(temp.resolve("root/a/link"), outside);
+
+        OperationProgress progress = new OperationProgress();
+        deleter().delete(temp.resolve("root"), progress);
+
+        assertFalse(progress.hasFailures(), () -> String.join("\n", progress.getFailures()));
+        assertFalse(Files.exists(temp.resolve("root")));
+        assertTrue(Files.exists(outside), "links are removed, not followed");
+        assertEquals(8, progress.getItemsDone());
+    }
+
+    @Test
+    void trashIsKeptOutsideTheUsersFolders() throws IOException {
+        Path folder = Files.createDirectories(temp.resolve("folder"));
+        Path file = Files.write(folder.resolve("file.txt"), new byte[]{1});
+        RecursiveDeleter deleter = deleter();
+
+        Path trashed = deleter.moveToTrash(file);
+
+        assertTrue(trashed.startsWith(temp.resolve("app/trash")), trashed::toString);
+        try (Stream<Path> entries = Files.list(folder)) {
+            assertEquals(0, entries.count(), "nothing is left next to the deleted file");
+        }
+        OperationProgress progress = new OperationProgress();
+        deleter.purge(trashed, progress);
+        assertFalse(progress.hasFailures(), () -> String.join("\n", progress.getFailures()));
+        assertFalse(Files.exists(trashed));
+    }
+
+    @Test
+    void cancellationStopsTheWalk() throws IOException {
+        Files.createDirectories(temp.resolve("root/sub"));
+        OperationProgress progress = new OperationProgress();
+        progress.cancel();
+
+        assertThrows(CancellationException.class, () -> deleter().delete(temp.resolve("root"), progress));
+        assertTrue(Files.exists(temp.resolve("root/sub")));
+    }
+
+    private RecursiveDeleter deleter() {
+        return new RecursiveDeleter(new IoScheduler(2), temp.resolve("app/trash"));
+    }
+}
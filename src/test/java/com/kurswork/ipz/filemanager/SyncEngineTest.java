@@ -0,0 +1,133 @@
+package com.kurswork.ipz.filemanager;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SyncEngineTest {
+    private static final int BLOCK = SyncEngine.BLOCK_SIZE;
+
+    private static SyncEngine engine;
+
+    @TempDir
+    Path temp;
+
+    @BeforeAll
+    static void startEngine() {
+        engine = new SyncEngine(2);
+    }
+
+    @Test
+    void copiesAMissingTreeWhole() throws IOException {
+        Path source = Files.createDirectories(temp.resolve("source/sub"));
+        byte[] contents = randomBytes(BLOCK + 123, 1);
+        Files.write(source.resolve("file.bin"), contents);
+        Files.createFile(source.resolve("empty"));
+        Path target = temp.resolve("target");
+
+        OperationProgress progress = sync(temp.resolve("source"), target);
+
+        assertArrayEquals(contents, Files.readAllBytes(target.resolve("sub/file.bin")));
+        assertEquals(0, Files.size(target.resolve("sub/empty")));
+        assertEquals(contents.length, progress.getBytesWritten());
+        assertEquals(Files.getLastModifiedTime(source.resolve("file.bin")), Files.getLastModifiedTime(target.resolve("sub/file.bin")));
+    }
+
+    @Test
+    void rewritesOnlyTheBlocksThatDiffer() throws IOException {
+        byte[] contents = randomBytes(BLOCK * 3 + 4567, 2);
+        Path source = Files.write(temp.resolve("source.bin"), contents);
+        byte[] stale = Arrays.copyOf(contents, contents.length);
+        stale[BLOCK + 10] ^= 1;
+        stale[contents.length - 1] ^= 1;
+        Path target = Files.write(temp.resolve("target.bin"), stale);
+        Files.setLastModifiedTime(target, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() - 60_000));
+
+        OperationProgress progress = sync(source, target);
+
+        assertArrayEquals(contents, Files.readAllBytes(target));
+        // The second block and the short last one.
+        assertEquals(BLOCK + 4567, progress.getBytesWritten());
+        assertEquals(contents.length, progress.getBytesDone());
+        assertEquals(Files.getLastModifiedTime(source), Files.getLastModifiedTime(target));
+    }
+
+    @Test
+    void truncatesALongerTarget() throws IOException {
+        byte[] contents = randomBytes(BLOCK / 2, 3);
+        Path source = Files.write(temp.resolve("source.bin"), contents);
+        byte[] longer = Arrays.copyOf(contents, BLOCK * 2);
+        Path target = Files.write(temp.resolve("target.bin"), longer);
+
+        OperationProgress progress = sync(source, target);
+
+        assertArrayEquals(contents, Files.readAllBytes(target));
+        assertEquals(0, progress.getBytesWritten());
+    }
+
+    @Test
+    void skipsFilesWithTheSameSizeAndTime() throws IOException {
+        Path source = Files.write(temp.resolve("source.bin"), new byte[]{1, 2, 3});
+        Path target = Files.write(temp.resolve("target.bin"), new byte[]{4, 5, 6});
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+
+        OperationProgress progress = sync(source, target);
+
+        assertArrayEquals(new byte[]{4, 5, 6}, Files.readAllBytes(target));
+        assertEquals(0, progress.getBytesWritten());
+        assertEquals(1, progress.getItemsDone());
+    }
+
+    @Test
+    void toleratesTwoSecondTimesOnlyOnEvenSeconds() throws IOException {
+        Path source = Files.write(temp.resolve("source.bin"), new byte[]{1, 2, 3});
+        Path target = Files.write(temp.resolve("target.bin"), new byte[]{4, 5, 6});
+        // A target written to FAT keeps an even second, up to two seconds from the source time.
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_700_000_001_500L));
+        Files.setLastModifiedTime(target, FileTime.fromMillis(1_700_000_000_000L));
+
+        assertEquals(0, sync(source, target).getBytesWritten());
+        assertArrayEquals(new byte[]{4, 5, 6}, Files.readAllBytes(target));
+
+        // Elsewhere even a millisecond apart means the file changed.
+        Files.setLastModifiedTime(target, FileTime.fromMillis(1_700_000_001_501L));
+
+        assertEquals(3, sync(source, target).getBytesWritten());
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(target));
+    }
+
+    @Test
+    void refusesToSyncADirectoryIntoItself() throws IOException {
+        Path source = Files.createDirectories(temp.resolve("source"));
+        Files.write(source.resolve("file.bin"), new byte[]{1});
+
+        assertThrows(CompletionException.class, () -> engine.sync(source, source.resolve("copy"), new OperationProgress()).join());
+        assertFalse(Files.exists(source.resolve("copy")));
+    }
+
+    private static OperationProgress sync(Path source, Path target) {
+        OperationProgress progress = new OperationProgress();
+        engine.sync(source, target, progress).join();
+        assertFalse(progress.hasFailures(), () -> String.join("\n", progress.getFailures()));
+        return progress;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}